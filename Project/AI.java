@@ -1,72 +1,1041 @@
 package projects.connect4;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-class AI {
+class AI implements Engine {
 
     private static final int ALPHA = Integer.MIN_VALUE;
     private static final int BETA = Integer.MAX_VALUE;
 
+    private static final int DEFAULT_TABLE_SIZE_MB = 16;
+    private static final int EVALUATION_CACHE_SIZE_MB = 4;
+
+    static final int WIN_SCORE = 10000000;
+
+    //Added to the heuristic score for the player the zugzwang favours, worth two threes in a row
+    private static final int ZUGZWANG_SCORE = 100;
+
+    //The shallowest search that gets its opening moves from the book, see usesBook
+    private static final int MIN_BOOK_DEPTH = 4;
+
+    //Below this many empty squares the solver is fast enough to solve the position on every move
+    private static final int DEFAULT_SOLVER_THRESHOLD = 18;
+
+    //Half the width of the window around the score of the previous depth in iterativeDeepening,
+    //the score of a three in a row in evaluateBoard
+    private static final int ASPIRATION_WINDOW = 50;
+
+    //How many nodes are searched between each look at the clock
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    //Ordering scores for the transposition table move and the killer moves, above any history score
+    private static final int TABLE_MOVE_SCORE = Integer.MAX_VALUE;
+    private static final int KILLER_SCORE = Integer.MAX_VALUE - 1;
+
+    //One more than the number of squares, so that there is a ply for every possible number of tiles
+    private static final int PLIES = Board.ROWS * Board.COLUMNS + 1;
+
     private final int AI;
     private final int OPPONENT;
 
     int depth;
-    int count; //For testing purposes only
+    //Counters of the last search, see SearchStatistics
+    final SearchStatistics stats = new SearchStatistics();
+
+    //Prints how the search went after every move
+    boolean verbose = true;
+
+    //Milliseconds the AI may think on each move. When set the AI searches deeper and deeper until
+    //the time is up instead of searching to a fixed depth.
+    int timeLimit;
+
+    //How positions that are not won, lost or tied are scored. The patterns of the classic heuristic are
+    //written for four in a row, so with another connect length the windows are scored instead.
+    Heuristic heuristic = Board.CONNECT == 4 ? Heuristic.CLASSIC : Heuristic.WINDOWS;
+
+    //Adds ZUGZWANG_SCORE to the heuristic for the player the zugzwang favours, see zugzwangScore.
+    //Turned off the positions are scored by the heuristic alone.
+    boolean zugzwang = true;
+
+    //Looked up before searching when set, see OpeningBook. The easier difficulties are meant to make mistakes,
+    //so the book is only used from MIN_BOOK_DEPTH or when searching on time.
+    OpeningBook book;
+
+    //The position is solved exactly instead of searched when there are fewer empty squares than this, see Solver
+    int solverThreshold = DEFAULT_SOLVER_THRESHOLD;
+    private Solver solver;
+
+    private int tableSizeMB;
+
+    private long deadline = Long.MAX_VALUE;
+    private boolean aborted;
+
+    //Set from another thread to abort the search, shared with the helpers. See stopPondering.
+    private AtomicBoolean stop = new AtomicBoolean();
+
+    //Searches the replies of the opponent while the opponent is thinking, see ponder
+    private ExecutorService ponderer;
+    private Future<?> pondering;
+
+    //The best answer found while pondering to every reply of the opponent, by the column of the reply.
+    //The key is the position after the reply, the depth the deepest completed search of it.
+    private final long[] ponderedKeys = new long[Board.COLUMNS];
+    private final ScorePlacementPair[] ponderedMoves = new ScorePlacementPair[Board.COLUMNS];
+    private final int[] ponderedDepths = new int[Board.COLUMNS];
+
+    //Used when searching the root on several threads, see setThreads
+    private int threads = 1;
+    private ExecutorService pool;
+    private BlockingQueue<AI> helpers;
 
     private Random rand = new Random();
 
+    //Move ordering state, indexed by the number of tiles on the board. See orderMoves.
+    private int[][] killers = new int[PLIES][2];
+    private int[][][] history = new int[2][Board.ROWS][Board.COLUMNS];
+    private int[][] moveBuffers = new int[PLIES][Board.COLUMNS];
+    private int[][] scoreBuffers = new int[PLIES][Board.COLUMNS];
+
+    //Kept between moves, positions searched on the previous move are often reached again
+    private TranspositionTable table;
+
+    //A shared table is aged by whoever shares it instead of before every search
+    private boolean sharedTable;
+
+    //Scores of leaves, kept between moves and shared with the helpers, see evaluate
+    private EvaluationCache evaluationCache;
+
     AI(int value, int opponentValue, int depthForMinMax) {
+        this(value, opponentValue, depthForMinMax, DEFAULT_TABLE_SIZE_MB);
+    }
+
+    /**
+     * @param value          The piece the AI plays with.
+     * @param opponentValue  The piece the opponent plays with.
+     * @param depthForMinMax How many moves ahead the AI searches.
+     * @param tableSizeMB    Memory budget in megabytes for the transposition table.
+     */
+    AI(int value, int opponentValue, int depthForMinMax, int tableSizeMB) {
+        AI = value;
+        OPPONENT = opponentValue;
+        depth = depthForMinMax;
+        table = new TranspositionTable(tableSizeMB);
+        evaluationCache = new EvaluationCache(EVALUATION_CACHE_SIZE_MB);
+        this.tableSizeMB = tableSizeMB;
+    }
+
+    /**
+     * Creates an AI that searches with a transposition table shared with other AIs, for example by all
+     * the games of a {@link GameServer}. The AI does not age the shared table before every search as it
+     * does with a table of its own, whoever shares it decides when to call newSearch. The scores in the table
+     * are from the view of the AI that stored them, so the table must only be shared by AIs of the same player.
+     *
+     * @param value             The piece the AI plays with.
+     * @param opponentValue     The piece the opponent plays with.
+     * @param depthForMinMax    How many moves ahead the AI searches.
+     * @param table             The shared transposition table.
+     * @param solverTableSizeMB Memory budget in megabytes for the table of the solver.
+     */
+    AI(int value, int opponentValue, int depthForMinMax, TranspositionTable table, int solverTableSizeMB) {
         AI = value;
         OPPONENT = opponentValue;
         depth = depthForMinMax;
+        this.table = table;
+        evaluationCache = new EvaluationCache(EVALUATION_CACHE_SIZE_MB);
+        tableSizeMB = solverTableSizeMB;
+        sharedTable = true;
+    }
+
+    /**
+     * Creates a helper for a parallel search. The helper plays for the same player
+     * and shares the transposition table of the given AI.
+     */
+    private AI(AI parent) {
+        AI = parent.AI;
+        OPPONENT = parent.OPPONENT;
+        depth = parent.depth;
+        table = parent.table;
+        evaluationCache = parent.evaluationCache;
+        stop = parent.stop;
     }
 
     /**
-     * Takes in a board with the current game state, sorts the available moves in order
-     * of highest score that they can produce and returns a sorted collection.
+     * Sets how many threads the AI uses when searching. With more than one thread the moves at the
+     * root of the search are searched in parallel, each thread with its own board but all sharing
+     * the same transposition table.
      *
-     * @param board The board with the current game state
-     * @return A collection of columns sorted in score for the move, highest first.
+     * @param threads The number of threads to search with, 1 searches on the calling thread only.
+     */
+    void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Needs at least 1 thread, was " + threads);
+
+        if (pool != null)
+            pool.shutdown();
+
+        this.threads = threads;
+        if (threads == 1) {
+            pool = null;
+            helpers = null;
+            return;
+        }
+
+        pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "AI search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        helpers = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++)
+            helpers.add(new AI(this));
+    }
+
+    /**
+     * Forgets everything learned on earlier moves, the transposition table, the cached evaluations, the solved
+     * positions, the move ordering and the pondered replies, so that the next search starts from nothing just
+     * as with a new AI. A table shared with other AIs is left alone, it is not this AI's to clear.
+     */
+    void clear() {
+        stopPondering();
+        if (!sharedTable)
+            table.clear();
+        evaluationCache.clear();
+        if (solver != null)
+            solver.clear();
+        Arrays.fill(ponderedMoves, null);
+
+        clearMoveOrdering();
+        if (helpers != null)
+            for (AI helper : helpers)
+                helper.clearMoveOrdering();
+    }
+
+    private void clearMoveOrdering() {
+        //-1 for no killer as in ageMoveOrdering, 0 is a column
+        for (int[] plyKillers : killers)
+            Arrays.fill(plyKillers, -1);
+
+        for (int[][] playerHistory : history)
+            for (int[] row : playerHistory)
+                Arrays.fill(row, 0);
+    }
+
+    /**
+     * Orders the playable columns of the board in the order they should be searched and puts them in the
+     * given buffer. For alpha-beta pruning it is most beneficial to search the best move first, since it
+     * gives the tightest window for the rest of the moves. The order is guessed from what earlier parts of
+     * the search have found, which costs almost nothing compared to evaluating every move:
+     * 1. The best column stored in the transposition table for the position.
+     * 2. The two killer moves of the ply, the latest columns that caused a cutoff at the same number of tiles.
+     * 3. The rest by their history score, how much the square has caused cutoffs for the player anywhere in the search.
+     * Columns with the same score are ordered from the center and out, the center is worth the most in Connect 4.
+     *
+     * @param board       The board with the current game state.
+     * @param player      The player to move.
+     * @param tableColumn The column stored in the transposition table, or -1 if there is none.
+     * @param columns     The columns worth searching as a bit per column, the other columns are left out.
+     * @param moves       Buffer to put the ordered columns in.
+     * @return The number of playable columns put in the buffer.
+     */
+    private int orderMoves(BitBoard board, int player, int tableColumn, int columns, int[] moves) {
+        int ply = board.getMoveCount();
+        int[] scores = scoreBuffers[ply];
+        int size = 0;
+
+        for (int col : Board.CENTER_FIRST) {
+            int row = board.getNextRow(col);
+            if (row == Board.COLUMN_IS_FULL || (columns & (1 << col)) == 0)
+                continue;
+
+            int score;
+            if (col == tableColumn)
+                score = TABLE_MOVE_SCORE;
+            else if (col == killers[ply][0])
+                score = KILLER_SCORE;
+            else if (col == killers[ply][1])
+                score = KILLER_SCORE - 1;
+            else
+                score = history[player - 1][row][col];
+
+            insertMove(moves, scores, size++, col, score);
+        }
+
+        return size;
+    }
+
+    /**
+     * Orders the moves at the root of the search. There are only a few of them, so unlike in orderMoves every
+     * move is scored with the heuristic. Besides giving a good order for alpha-beta, this decides which move is
+     * played when several moves get the same score from the search, since the first of them is picked.
+     *
+     * @param board       The board with the current game state.
+     * @param firstColumn The column to put first, or -1 to order all moves by their heuristic score.
+     * @param moves       Buffer to put the ordered columns in.
+     * @return The number of playable columns put in the buffer.
+     */
+    private int orderRootMoves(BitBoard board, int firstColumn, int[] moves) {
+        int[] scores = scoreBuffers[board.getMoveCount()];
+        int size = 0;
+
+        //On a symmetric board a move and its mirror image are worth the same, only the left one is searched
+        boolean symmetric = board.isSymmetric();
+
+        for (int col : Board.CENTER_FIRST) {
+            if (board.getNextRow(col) == Board.COLUMN_IS_FULL || (symmetric && col > mirrorColumn(col)))
+                continue;
+
+            board.play(col, AI);
+            int score = col == firstColumn ? TABLE_MOVE_SCORE : evaluate(board);
+            board.undo(col);
+
+            insertMove(moves, scores, size++, col, score);
+        }
+
+        return size;
+    }
+
+    /**
+     * Stores the result of a search in the transposition table under the canonical hash of the position,
+     * so that its mirror image can use it too. See {@link BitBoard#getCanonicalHash()}.
+     */
+    private void store(BitBoard board, int score, int depth, int bound, int column) {
+        if (!board.isCanonical())
+            column = mirrorColumn(column);
+        table.put(board.getCanonicalHash(), score, depth, bound, column);
+    }
+
+    /**
+     * @param col A column or -1 for no column.
+     * @return The same column on the mirrored board, or -1 if there was no column.
      */
-    private Collection<Integer> getBestMoves(Board board) {
-        PriorityQueue<ScorePlacementPair> heap = new PriorityQueue<>();
+    private static int mirrorColumn(int col) {
+        return col == -1 ? -1 : Board.COLUMNS - 1 - col;
+    }
 
-        for (int col : board.getValidMoves()) {
-            Board copy = board.getCopy();
-            int row = copy.getNextRow(col);
-            copy.addTile(row, col, AI);
-            int score = copy.evaluateBoard(AI);
-            heap.add(new ScorePlacementPair(score, col));
+    /**
+     * Insertion sort step, puts the column into the first size moves sorted by score with the highest first.
+     * The moves are few and moves with equal scores stay in the order they were inserted.
+     */
+    private static void insertMove(int[] moves, int[] scores, int size, int col, int score) {
+        int i = size;
+        while (i > 0 && scores[i - 1] < score) {
+            moves[i] = moves[i - 1];
+            scores[i] = scores[i - 1];
+            i--;
         }
+        moves[i] = col;
+        scores[i] = score;
+    }
 
-        List<Integer> moves = new ArrayList<>();
-        for (ScorePlacementPair scp : heap)
-            moves.add(scp.column);
+    /**
+     * Remembers a move that caused a cutoff, as a killer move for the ply and in the history table.
+     * Cutoffs found deep in the tree save less work than cutoffs close to the root, so the history
+     * score grows with the square of the remaining depth.
+     */
+    private void storeCutoff(BitBoard board, int player, int row, int col, int depth) {
+        int[] plyKillers = killers[board.getMoveCount()];
+        if (plyKillers[0] != col) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = col;
+        }
 
-        return moves;
+        history[player - 1][row][col] += depth * depth;
+    }
+
+    /**
+     * @param index The index of the move causing the cutoff in the order the moves were searched.
+     */
+    private void countCutoff(int index) {
+        stats.cutoffs++;
+        if (index == 0)
+            stats.firstMoveCutoffs++;
+    }
+
+    /**
+     * Clears the killer moves and halves the history scores before a new search, so that
+     * what was learned on earlier moves of the game still counts but fades out over time.
+     */
+    private void ageMoveOrdering() {
+        for (int[] plyKillers : killers)
+            Arrays.fill(plyKillers, -1);
+
+        for (int[][] playerHistory : history)
+            for (int[] row : playerHistory)
+                for (int col = 0; col < row.length; col++)
+                    row[col] /= 2;
     }
 
     /**
      * Public driver routine for the minmax algorithm. Simply takes in a board
      * from which to start the search and returns the column that gives the best position.
+     * The search itself is done on a {@link BitBoard} copy of the given board. If the AI has an
+     * opening book that knows the position, the move from the book is returned without searching.
+     * The same goes for moves the threats of the position force, see {@link Threats#forcedMove}.
+     * Close to the end of the game the position is solved exactly instead, see solve.
+     * If the position was searched while pondering, the search continues from the depth reached then.
      *
      * @param board The board with the current game state.
      * @return The best column to play on.
      */
-    int findBestMoveMinMax(Board board) {
-        count = 0;
-        ScorePlacementPair scp = minMax(board, depth, true, ALPHA, BETA);
+    int findBestMoveMinMax(AbstractBoard board) {
+        stopPondering();
+        BitBoard position = new BitBoard(board);
+        int reply = findPonderedReply(position);
+        ScorePlacementPair pondered = reply == -1 ? null : ponderedMoves[reply];
+        int ponderedDepth = reply == -1 ? 0 : ponderedDepths[reply];
+        Arrays.fill(ponderedMoves, null);
+        stats.reset(position.getMoveCount());
+
+        if (usesBook()) {
+            int col = book.lookup(position, AI);
+            if (col != OpeningBook.NOT_FOUND) {
+                stats.stop();
+                return col;
+            }
+        }
+
+        if (depth > 0 || timeLimit > 0) {
+            int col = Threats.forcedMove(position, AI);
+            if (col != Threats.NO_MOVE) {
+                stats.threatCutoffs++;
+                stats.stop();
+                if (verbose)
+                    System.out.println("Forced move, column " + (col + 1) + " was played without searching.");
+                return col;
+            }
+        }
+
+        int emptySquares = Board.ROWS * Board.COLUMNS - position.getMoveCount();
+        if ((depth > 0 || timeLimit > 0) && emptySquares < solverThreshold) {
+            int col = solve(position);
+            stats.stop();
+            return col;
+        }
+
+        if (!sharedTable)
+            table.newSearch();
+        ageMoveOrdering();
+        if (helpers != null)
+            for (AI helper : helpers)
+                helper.ageMoveOrdering();
+
+        ScorePlacementPair scp;
+        if (pondered != null && (Math.abs(pondered.score) >= WIN_SCORE || (timeLimit == 0 && ponderedDepth >= depth))) {
+            //Searched deep enough while the opponent was thinking
+            scp = pondered;
+            stats.iterationDone(ponderedDepth, scp.score, scp.column, false);
+        } else if (timeLimit > 0)
+            scp = iterativeDeepening(position, pondered, ponderedDepth);
+        else if (depth > 0) {
+            scp = searchRoot(position, depth, pondered == null ? -1 : pondered.column, ALPHA, BETA);
+            stats.iterationDone(depth, scp.score, scp.column, false);
+        } else //At depth 0 the root is only scored, the column is picked at random below
+            scp = new ScorePlacementPair(minMax(position, depth, true, ALPHA, BETA, -1), -1);
+
+        stats.stop();
         int col = scp.column;
-        System.out.println("Minmax did " + count + " laps.");
+        if (verbose) {
+            if (pondered != null)
+                System.out.println("Ponder hit, the position was searched to depth " + ponderedDepth +
+                        " while the opponent was thinking.");
+            System.out.println("Minmax searched " + stats);
+        }
 
         //Only when depth == 0
         //Does not really make sense but an easy way to create a super easy game mode.
-        while (!board.getValidMoves().contains(col))
-            col = rand.nextInt(7);
+        int playable = position.getPlayableColumns();
+        while (col < 0 || (playable & (1 << col)) == 0)
+            col = rand.nextInt(Board.COLUMNS);
 
         return col;
     }
 
+    /**
+     * @return True if the AI looks up its moves in the opening book before searching.
+     */
+    private boolean usesBook() {
+        return book != null && (depth >= MIN_BOOK_DEPTH || timeLimit > 0);
+    }
+
+    @Override
+    public int findBestMove(AbstractBoard board) {
+        return findBestMoveMinMax(board);
+    }
+
+    @Override
+    public long getNodeCount() {
+        return stats.nodes;
+    }
+
+    /**
+     * Searches the replies the opponent can make on a background thread until stopPondering is called or
+     * there is nothing more to search. Every reply is searched the way findBestMoveMinMax would search the
+     * position after it, one depth at a time for all replies, with the reply the AI expects first. When
+     * findBestMoveMinMax is then called after one of the replies it continues from the depth reached here,
+     * and the positions searched for the other replies are still in the transposition table.
+     * <p>
+     * Pondering uses the threads, tables and move ordering of the AI, so the AI must not be used for anything
+     * else until pondering has stopped. findBestMoveMinMax stops it before searching.
+     *
+     * @param board The board after the AI's move, with the opponent to move.
+     */
+    @Override
+    public void ponder(AbstractBoard board) {
+        stopPondering();
+
+        //The easiest difficulty picks its moves at random, there is nothing to search
+        if (depth <= 0 && timeLimit <= 0)
+            return;
+
+        if (ponderer == null)
+            ponderer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "AI ponder");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        BitBoard position = new BitBoard(board);
+        pondering = ponderer.submit(() -> ponderReplies(position));
+    }
+
+    @Override
+    public void stopPondering() {
+        if (pondering == null)
+            return;
+
+        stop.set(true);
+        boolean interrupted = false;
+        try {
+            //The search checks the flag often, so this does not wait long even when interrupted
+            while (true) {
+                try {
+                    pondering.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Pondering failed", e.getCause());
+        } finally {
+            stop.set(false);
+            pondering = null;
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Whether the AI is still searching the replies of the opponent. At a fixed depth pondering
+     * ends by itself when every reply has been searched to that depth.
+     */
+    boolean isPondering() {
+        return pondering != null && !pondering.isDone();
+    }
+
+    private void ponderReplies(BitBoard board) {
+        Arrays.fill(ponderedMoves, null);
+        stats.reset(board.getMoveCount());
+        ageMoveOrdering();
+
+        //Only replies after which the AI would search, not ones that end the game or are in the book or the solver's range
+        int[] replies = new int[Board.COLUMNS];
+        int size = 0;
+        for (int col : orderReplies(board)) {
+            board.play(col, OPPONENT);
+            int emptySquares = Board.ROWS * Board.COLUMNS - board.getMoveCount();
+            boolean searched = !board.isWonByLastMove(col) && emptySquares > 0 && emptySquares >= solverThreshold &&
+                    (!usesBook() || book.lookup(board, AI) == OpeningBook.NOT_FOUND);
+            ponderedKeys[col] = board.getKey(AI);
+            board.undo(col);
+
+            if (searched)
+                replies[size++] = col;
+        }
+
+        int maxDepth = Board.ROWS * Board.COLUMNS - board.getMoveCount() - 1;
+        if (timeLimit <= 0)
+            maxDepth = Math.min(maxDepth, depth);
+
+        for (int d = 1; d <= maxDepth; d++) {
+            for (int i = 0; i < size; i++) {
+                int col = replies[i];
+                ScorePlacementPair previous = ponderedMoves[col];
+                if (previous != null && Math.abs(previous.score) >= WIN_SCORE)
+                    continue;
+                if (stop.get())
+                    return;
+
+                board.play(col, OPPONENT);
+                ScorePlacementPair result = searchRoot(board, d, previous == null ? -1 : previous.column, ALPHA, BETA);
+                board.undo(col);
+
+                if (aborted) {
+                    aborted = false;
+                    return;
+                }
+                ponderedMoves[col] = result;
+                ponderedDepths[col] = d;
+            }
+        }
+    }
+
+    /**
+     * @return The playable columns of the opponent, the reply stored in the transposition table first
+     * and the rest from the center and out.
+     */
+    private int[] orderReplies(BitBoard board) {
+        int expected = -1;
+        long entry = table.get(board.getCanonicalHash());
+        if (entry != TranspositionTable.NO_ENTRY) {
+            expected = TranspositionTable.column(entry);
+            if (!board.isCanonical())
+                expected = mirrorColumn(expected);
+        }
+
+        int playable = board.getPlayableColumns();
+        int[] replies = new int[Integer.bitCount(playable)];
+        int size = 0;
+        if (expected != -1 && (playable & (1 << expected)) != 0)
+            replies[size++] = expected;
+        for (int col : Board.CENTER_FIRST)
+            if (col != expected && (playable & (1 << col)) != 0)
+                replies[size++] = col;
+
+        return replies;
+    }
+
+    /**
+     * @return The column of the reply that led to the position while pondering, or -1 if the position
+     * was not searched while pondering.
+     */
+    private int findPonderedReply(BitBoard board) {
+        long key = board.getKey(AI);
+        for (int col = 0; col < Board.COLUMNS; col++)
+            if (ponderedMoves[col] != null && ponderedKeys[col] == key)
+                return col;
+
+        return -1;
+    }
+
+    /**
+     * Searches the position to the depth of the AI without the opening book or the solver, so that
+     * the score is always on the scale of the heuristic. Used to analyse games, see GameAnalyzer.
+     *
+     * @param board The board with the current game state, the AI is to move.
+     * @param col   The column to score, or -1 for the best column.
+     * @return ScorePlacementPair with the score of the column, or of the best column and the column itself.
+     */
+    ScorePlacementPair analyze(AbstractBoard board, int col) {
+        if (depth < 1)
+            throw new IllegalStateException("Analysing needs a depth of at least 1, was " + depth);
+
+        BitBoard position = new BitBoard(board);
+        stats.reset(position.getMoveCount());
+        if (!sharedTable)
+            table.newSearch();
+        ageMoveOrdering();
+
+        ScorePlacementPair scp;
+        if (col == -1)
+            scp = searchRoot(position, depth, -1, ALPHA, BETA);
+        else
+            scp = new ScorePlacementPair(searchMove(position, col, depth, ALPHA, BETA, true), col);
+
+        stats.stop();
+        return scp;
+    }
+
+    /**
+     * Scores every playable column of the position in one search, with the same search as analyze. Every
+     * column is searched with the whole window, so unlike in findBestMoveMinMax where the moves that can not
+     * beat the best move are cut off, the score of every column is exact. Exact scores can not be had for less
+     * than a full search of every column, but the columns share the transposition table and move ordering
+     * and on a symmetric board only half of them are searched. Along with the score the principal variation
+     * of every column is returned. Used to give the player hints, see SinglePlayerGame.
+     *
+     * @param board The board with the current game state, the AI is to move.
+     * @return The playable columns with their scores and principal variations, the best column first.
+     */
+    Variation[] analyzeAll(AbstractBoard board) {
+        if (depth < 1)
+            throw new IllegalStateException("Analysing needs a depth of at least 1, was " + depth);
+
+        BitBoard position = new BitBoard(board);
+        stats.reset(position.getMoveCount());
+        if (!sharedTable)
+            table.newSearch();
+        ageMoveOrdering();
+
+        //On a symmetric board only the left columns are searched, see orderRootMoves
+        int[] moves = new int[Board.COLUMNS];
+        int size = orderRootMoves(position, -1, moves);
+
+        List<Variation> variations = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int col = moves[i];
+            int score = searchMove(position, col, depth, ALPHA, BETA, true);
+
+            //The line is read from the table right away, before the other columns overwrite it
+            int[] line = principalVariation(position, col, depth);
+            variations.add(new Variation(score, line));
+
+            if (position.isSymmetric() && mirrorColumn(col) != col) {
+                int[] mirrored = new int[line.length];
+                for (int j = 0; j < line.length; j++)
+                    mirrored[j] = mirrorColumn(line[j]);
+                variations.add(new Variation(score, mirrored));
+            }
+        }
+
+        stats.stop();
+        variations.sort(null);
+        return variations.toArray(new Variation[0]);
+    }
+
+    /**
+     * Follows the best columns stored in the transposition table from the position after the given column.
+     * The line ends early where the game ends or the table no longer has the position.
+     *
+     * @return The column followed by the best replies, at most depth moves in all.
+     */
+    private int[] principalVariation(BitBoard board, int col, int depth) {
+        int[] line = new int[depth];
+        int length = 0;
+        int player = AI;
+
+        while (true) {
+            board.play(col, player);
+            line[length++] = col;
+            if (length == depth || board.isWonByLastMove(col) || board.isFull())
+                break;
+
+            long entry = table.get(board.getCanonicalHash());
+            if (entry == TranspositionTable.NO_ENTRY)
+                break;
+            col = TranspositionTable.column(entry);
+            if (!board.isCanonical())
+                col = mirrorColumn(col);
+            if (col == -1 || board.getNextRow(col) == Board.COLUMN_IS_FULL)
+                break;
+
+            player = player == AI ? OPPONENT : AI;
+        }
+
+        for (int i = length - 1; i >= 0; i--)
+            board.undo(line[i]);
+
+        return Arrays.copyOf(line, length);
+    }
+
+    /**
+     * Finds the best move with the solver, which plays perfectly from here on. The solver shares
+     * the board representation of the search so the position can be handed over as it is.
+     *
+     * @param board The board with the current game state.
+     * @return The best column to play on.
+     */
+    private int solve(BitBoard board) {
+        if (solver == null)
+            solver = new Solver(tableSizeMB);
+
+        solver.nodes = 0;
+        ScorePlacementPair scp = solver.findBestMove(board, AI);
+        stats.nodes += solver.nodes;
+
+        if (verbose) {
+            int movesLeft = Solver.movesToEnd(scp.score, board.getMoveCount());
+            String outcome = scp.score == 0 ? "a draw" : scp.score > 0 ? "a win" : "a loss";
+            System.out.println("Solver did " + solver.nodes + " laps, " + outcome + " in " + movesLeft + " moves.");
+        }
+
+        return scp.column;
+    }
+
+    /**
+     * Searches the board to depth 1, then depth 2 and so on until the time limit is reached. The search that
+     * is running when the time runs out is aborted and the result of the last completed depth is returned.
+     *
+     * Searching all the shallower depths first is not as wasteful as it sounds. Every depth has far fewer nodes
+     * than the next one, and the best move of each depth is searched first in the next, which together with the
+     * transposition table filled by the earlier depths makes alpha-beta cut off a lot more of the tree.
+     *
+     * The score rarely changes much from one depth to the next, so every depth after the first is searched with
+     * an aspiration window, a narrow window around the score of the previous depth instead of the full window.
+     * The narrower the window the more is cut off. If the score falls outside the window it is only a bound,
+     * and the depth is searched again with the full window.
+     *
+     * @param board          The board with the current game state.
+     * @param best           The result of a search already completed while pondering, or null if there is none.
+     * @param completedDepth The depth of that search, the search continues with the next depth.
+     * @return ScorePlacementPair with the score and column of the deepest completed search.
+     */
+    private ScorePlacementPair iterativeDeepening(BitBoard board, ScorePlacementPair best, int completedDepth) {
+        long start = System.currentTimeMillis();
+        int maxDepth = Board.ROWS * Board.COLUMNS - board.getMoveCount();
+
+        //A depth completed while pondering counts as the first depth, so the time limit applies from the start
+        if (best != null)
+            deadline = start + timeLimit;
+
+        for (int d = completedDepth + 1; d <= maxDepth; d++) {
+            ScorePlacementPair result;
+            if (best == null || Math.abs(best.score) >= WIN_SCORE) {
+                result = searchRoot(board, d, best == null ? -1 : best.column, ALPHA, BETA);
+            } else {
+                int alpha = best.score - ASPIRATION_WINDOW;
+                int beta = best.score + ASPIRATION_WINDOW;
+                result = searchRoot(board, d, best.column, alpha, beta);
+
+                if (!aborted && (result.score <= alpha || result.score >= beta)) {
+                    stats.aspirationFailures++;
+                    //A move that failed high is better than the previous best, so it is searched first
+                    result = searchRoot(board, d, result.score >= beta ? result.column : best.column, ALPHA, BETA);
+                }
+            }
+            stats.iterationDone(d, result.score, result.column, aborted);
+            if (aborted)
+                break;
+
+            best = result;
+
+            //No reason to search deeper when a forced win or loss has been found
+            if (Math.abs(best.score) >= WIN_SCORE)
+                break;
+
+            //The first depth is always completed so that there is a move to return
+            deadline = start + timeLimit;
+            if (System.currentTimeMillis() >= deadline)
+                break;
+        }
+
+        deadline = Long.MAX_VALUE;
+        aborted = false;
+        return best;
+    }
+
+    /**
+     * Same as the maximizing part of minMax but for the root of the search, where the given column
+     * is searched first instead of the one in the transposition table. Used by iterativeDeepening to search the best move of the previous depth first.
+     * When the AI has more than one thread the root moves are searched in parallel, see searchRootParallel.
+     *
+     * @param board       The board with the current game state.
+     * @param depth       The depth to search to, must be greater than 0.
+     * @param firstColumn The column to search first, or -1 to use the ordinary move ordering.
+     * @param alpha       Lower end of the window, ALPHA for the full window.
+     * @param beta        Upper end of the window, BETA for the full window.
+     * @return ScorePlacementPair with the best score and the column producing it. If the score is
+     * outside the window it is only a bound of the real score, as in minMax.
+     */
+    private ScorePlacementPair searchRoot(BitBoard board, int depth, int firstColumn, int alpha, int beta) {
+        stats.node(board.getMoveCount());
+
+        int[] moves = moveBuffers[board.getMoveCount()];
+        int size = orderRootMoves(board, firstColumn, moves);
+
+        if (threads > 1 && size > 1)
+            return searchRootParallel(board, depth, moves, size, alpha, beta);
+
+        int alphaOriginal = alpha;
+        int score = Integer.MIN_VALUE;
+        int column = moves[0];
+
+        for (int i = 0; i < size; i++) {
+            int col = moves[i];
+            int newScore = searchMove(board, col, depth, alpha, beta, i == 0);
+            if (aborted)
+                break;
+
+            if (newScore > score) {
+                score = newScore;
+                column = col;
+            }
+            alpha = Math.max(alpha, newScore);
+            if (alpha >= beta)
+                break;
+        }
+
+        if (!aborted)
+            store(board, score, depth, bound(score, alphaOriginal, beta), column);
+
+        return new ScorePlacementPair(score, column);
+    }
+
+    /**
+     * Searches the root moves on the thread pool. The first move is searched alone on the calling thread,
+     * since it is most likely the best move it gives an alpha that lets the other moves be cut off early.
+     * The rest of the moves are then searched at the same time by the helpers, each starting with the
+     * best alpha found so far.
+     *
+     * The best move is picked in the same order as in the sequential search, a later move only replaces
+     * an earlier one if it has a strictly higher score. A move that scores at or below the alpha it was
+     * searched with has only been proven to be no better than that alpha, its score is an upper bound and not
+     * its real score. Another move may have raised the shared alpha while it was searched, so the bound can be
+     * higher than the best score found so far, but such a move is never picked. Only when no move has beaten
+     * rootAlpha are the bounds compared, as in the sequential search. The returned score is therefore the same
+     * as the sequential search would return.
+     * Entries a thread finds in the shared transposition table may however have been searched deeper by
+     * another thread, in the same way as entries left from earlier depths in iterativeDeepening.
+     *
+     * @param board      The board with the current game state.
+     * @param depth      The depth to search to, must be greater than 0.
+     * @param moves      The moves at the root, in the order they should be searched.
+     * @param size       The number of moves.
+     * @param rootAlpha  Lower end of the window.
+     * @param beta       Upper end of the window.
+     * @return ScorePlacementPair with the best score and the column producing it.
+     */
+    private ScorePlacementPair searchRootParallel(BitBoard board, int depth, int[] moves, int size,
+                                                  int rootAlpha, int beta) {
+        int column = moves[0];
+        int score = searchMove(board, column, depth, rootAlpha, beta, true);
+        if (aborted)
+            return new ScorePlacementPair(score, column);
+        if (score >= beta) {
+            store(board, score, depth, TranspositionTable.LOWER_BOUND, column);
+            return new ScorePlacementPair(score, column);
+        }
+
+        AtomicInteger alpha = new AtomicInteger(Math.max(rootAlpha, score));
+        AtomicBoolean helperAborted = new AtomicBoolean();
+
+        //The alpha every move was searched with, read once the search of the move is done
+        int[] searchAlphas = new int[size];
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 1; i < size; i++) {
+            int col = moves[i];
+            int index = i;
+            results.add(pool.submit(() -> {
+                AI helper = helpers.take();
+                try {
+                    helper.stats.reset(stats.rootMoves);
+                    helper.deadline = deadline;
+                    helper.heuristic = heuristic;
+                    helper.zugzwang = zugzwang;
+
+                    //Every helper needs a board of its own to play the moves on
+                    int searchAlpha = alpha.get();
+                    searchAlphas[index] = searchAlpha;
+                    int newScore = helper.searchMove(board.getCopy(), col, depth, searchAlpha, beta, false);
+                    if (helper.aborted)
+                        helperAborted.set(true);
+                    else
+                        alpha.accumulateAndGet(newScore, Math::max);
+
+                    return newScore;
+                } finally {
+                    synchronized (stats) {
+                        stats.add(helper.stats);
+                    }
+                    helper.aborted = false;
+                    helpers.put(helper);
+                }
+            }));
+        }
+
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                int newScore = results.get(i).get();
+                int searchAlpha = searchAlphas[i + 1];
+                if (newScore > score && (newScore > searchAlpha || searchAlpha == rootAlpha)) {
+                    score = newScore;
+                    column = moves[i + 1];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            aborted = true;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parallel search failed", e.getCause());
+        }
+
+        if (helperAborted.get())
+            aborted = true;
+
+        if (!aborted)
+            store(board, score, depth, bound(score, rootAlpha, beta), column);
+
+        return new ScorePlacementPair(score, column);
+    }
+
+    /**
+     * Plays the AI's tile in the given column and searches the resulting position. Every move but the
+     * first is searched with principal variation search, see minMax.
+     * The board is left as it was when the method returns.
+     *
+     * @param first True for the first move searched, which is searched with the whole window.
+     * @return The score of the position after the move.
+     */
+    private int searchMove(BitBoard board, int col, int depth, int alpha, int beta, boolean first) {
+        board.play(col, AI);
+        int score;
+        if (first) {
+            score = minMax(board, depth - 1, false, alpha, beta, col);
+        } else {
+            score = minMax(board, depth - 1, false, alpha, alpha + 1, col);
+            if (score > alpha && score < beta && !aborted) {
+                stats.researches++;
+                score = minMax(board, depth - 1, false, alpha, beta, col);
+            }
+        }
+        board.undo(col);
+
+        return score;
+    }
+
+    /**
+     * Scores the position with the heuristic for the AI, plus the zugzwang score when it is turned on.
+     * The scores of heuristics that are slow to compute are looked up in the evaluation cache first and
+     * stored there when they are not found.
+     */
+    private int evaluate(BitBoard board) {
+        if (!heuristic.cached)
+            return heuristic.evaluate(board, AI) + zugzwangScore(board);
+
+        //The key of the position can use all 64 bits on the largest boards, so the heuristic and whether the
+        //zugzwang score is included are stored as the tag
+        long key = board.getKey(AI);
+        int tag = heuristic.ordinal() * 2 + (zugzwang ? 1 : 0);
+        stats.evaluations++;
+        long entry = evaluationCache.get(key, tag);
+        if (entry != EvaluationCache.NO_ENTRY) {
+            stats.evaluationCacheHits++;
+            return EvaluationCache.score(entry);
+        }
+
+        int score = heuristic.evaluate(board, AI) + zugzwangScore(board);
+        evaluationCache.put(key, tag, score);
+        return score;
+    }
+
+    /**
+     * @return ZUGZWANG_SCORE if the zugzwang favours the AI, minus that if it favours the opponent and 0 if it
+     * favours neither or the zugzwang score is turned off, see {@link Threats#zugzwangControl}.
+     */
+    private int zugzwangScore(BitBoard board) {
+        if (!zugzwang)
+            return 0;
+
+        int control = Threats.zugzwangControl(board);
+        return control == AI ? ZUGZWANG_SCORE : control == OPPONENT ? -ZUGZWANG_SCORE : 0;
+    }
+
+    /**
+     * @return The kind of bound a score found with the given window is, see {@link TranspositionTable}.
+     */
+    private static int bound(int score, int alpha, int beta) {
+        if (score <= alpha)
+            return TranspositionTable.UPPER_BOUND;
+        else if (score >= beta)
+            return TranspositionTable.LOWER_BOUND;
+        else
+            return TranspositionTable.EXACT;
+    }
+
     /**
      * MinMax algorithm is a depth-first algorithm used to minimize the possible loss and maximize
      * the possible gain of a move. It explores all possible moves n depth down and finds the best moves
@@ -79,12 +1048,25 @@ class AI {
      * already found score for the maximizing and minimizing player respectively. They are then compared between
      * each other and used to prune branches of the search tree to make a more rapid search.
      *
+     * On top of that the search is a principal variation search. With good move ordering the first move is
+     * usually the best, so the rest of the moves are first searched with a null window, a window of width one
+     * around alpha (or beta for the minimizing player). That only proves the move is no better than the first
+     * one but cuts off far more than the whole window would. In the rare case that the move turns out to be
+     * better it is searched again with the whole window to get its real score.
+     *
      * This implementation does not work for depth 0. It needs at least one run in the else-clause to
      * simulate a move and find a valid position to move.
      *
      * Minmax algorithm uses heuristics to evaluate a position that is not terminal (won/lost/tied).
-     * This implementation is dependent of the evaluateBoard method in class Board.
-     * The specified method holds the heuristic values for a specific board state.
+     * This implementation is dependent of the chosen {@link Heuristic}, by default the evaluateBoard
+     * method in class Board. The specified method holds the heuristic values for a specific board state.
+     *
+     * Every searched position is stored in the transposition table together with the kind of bound
+     * its score is, see {@link TranspositionTable}. When the same position is reached again it does not
+     * have to be searched again as long as it was searched at least as deep as is asked for now.
+     *
+     * Moves are tried by playing them on the given board and taking them back when the child has been
+     * searched, so no boards are copied during the search and the board is unchanged when the method returns.
      *
      * @param board      The board being evaluated.
      * @param depth      The depth of the simulated tree, must be greater than 0. At depth 9 or greater
@@ -96,82 +1078,188 @@ class AI {
      *                   to make pruning of branches possible.
      * @param beta       Beta is originally +Infinity* (Maximum value for a 32-bit integer). It updates in the algorithm loop
      *                   to make pruning of branches possible.
-     * @return ScorePlacementPair holding both the information of the highest score achievable
-     * as well as what column produces that score.
+     * @param lastColumn The column of the move that led to this position, used to check if it won the game.
+     *                   -1 at the root of the search, which is never won.
+     * @return The highest score achievable. Only the score is returned so that the search allocates nothing
+     * per position, the column producing it is kept in the transposition table.
      */
-    private ScorePlacementPair minMax(Board board, int depth, boolean maximizing, int alpha, int beta) {
+    private int minMax(BitBoard board, int depth, boolean maximizing, int alpha, int beta, int lastColumn) {
+        stats.node(board.getMoveCount());
 
-        //For minmax with alpha-beta pruning it is most beneficial to consider the best move
-        //available at a given position. To find the best move however is not very cheap in
-        //the case of this program so when to simply use the available moves in ascending order
-        //and when to use the best first order has been manually tested.
+        if (stats.nodes % TIME_CHECK_INTERVAL == 0 && (System.currentTimeMillis() >= deadline || stop.get()))
+            aborted = true;
+        if (aborted) //The score is thrown away so it does not matter what is returned
+            return 0;
 
-        Collection<Integer> validMoves;
-        if (depth > 2) //2 is just an arbitrary value, empirically tested to be the best cutoff for when which ordering is most beneficial
-            validMoves = getBestMoves(board); //Orders moves from highest scoring to least
-        else
-            validMoves = board.getValidMoves(); //Orders moves from 0 to 6 (Available columns from 1 through 7)
-
-        count++; //For testing purposes
-
-        if (depth == 0 || board.isTerminal()) {
-            if (board.isWonFor(AI))
-                return new ScorePlacementPair(10000000, -1);
-            else if (board.isWonFor(OPPONENT))
-                return new ScorePlacementPair(-10000000, -1);
-            else if (board.isFull())
-                return new ScorePlacementPair(0, -1);
-            else { //Depth is 0
-                int score = board.evaluateBoard(AI);
-                return new ScorePlacementPair(score, -1);
+        //Only the player who just moved can have won, and only with a line through the tile just placed
+        if (lastColumn != -1 && board.isWonByLastMove(lastColumn))
+            return maximizing ? -WIN_SCORE : WIN_SCORE;
+        else if (board.isFull())
+            return 0;
+        else if (depth == 0)
+            return evaluate(board);
+
+        //A win on the next move and the moves that lose on the opponent's next move are found from the threats
+        //instead of by searching them, see Threats. Leaving the losing moves out is only exact from depth 2, where
+        //the search would have found the opponent's win.
+        int player = maximizing ? AI : OPPONENT;
+        long playable = board.getPlayableSquares();
+        long wins = board.getThreats(player) & playable;
+        if (wins != 0) {
+            stats.threatCutoffs++;
+            return maximizing ? WIN_SCORE : -WIN_SCORE;
+        }
+
+        int columns = -1;
+        if (depth >= 2) {
+            columns = BitBoard.columnsOf(Threats.safeSquares(board, player, playable));
+            if (columns == 0) {
+                stats.threatCutoffs++;
+                return maximizing ? -WIN_SCORE : WIN_SCORE;
             }
-        } else {
-            int newScore;
-            int column = 0;
-            int score;
+        }
 
-            if (maximizing) {
-                score = Integer.MIN_VALUE;
-                for (int col : validMoves) {
-                    int row = board.getNextRow(col);
-                    Board copy = board.getCopy();
-                    copy.addTile(row, col, AI);
+        //If the position has already been searched at least this deep the stored score can be used directly,
+        //or at least narrow the window. The stored column is searched first either way.
+        int alphaOriginal = alpha;
+        int betaOriginal = beta;
+        int tableColumn = -1;
+        long entry = table.get(board.getCanonicalHash());
+        stats.tableProbes++;
+        if (entry != TranspositionTable.NO_ENTRY) {
+            stats.tableHits++;
+            tableColumn = TranspositionTable.column(entry);
+            if (!board.isCanonical())
+                tableColumn = mirrorColumn(tableColumn);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int storedScore = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
 
-                    newScore = minMax(copy, depth - 1, false, alpha, beta).score;
+                if (bound == TranspositionTable.EXACT) {
+                    stats.tableCutoffs++;
+                    return storedScore;
+                }
+                else if (bound == TranspositionTable.LOWER_BOUND)
+                    alpha = Math.max(alpha, storedScore);
+                else
+                    beta = Math.min(beta, storedScore);
+
+                if (alpha >= beta) {
+                    stats.tableCutoffs++;
+                    return storedScore;
+                }
+            }
+        }
 
-                    if (newScore > score) {
-                        score = newScore;
-                        column = col;
+        //For minmax with alpha-beta pruning it is most beneficial to consider the best move
+        //available at a given position first
+        int[] moves = moveBuffers[board.getMoveCount()];
+        int size = orderMoves(board, player, tableColumn, columns, moves);
+        stats.expanded++;
+
+        int newScore;
+        int column = 0;
+        int score;
+
+        if (maximizing) {
+            score = Integer.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                int col = moves[i];
+                int row = board.getNextRow(col);
+                board.play(col, AI);
+                if (i == 0) {
+                    newScore = minMax(board, depth - 1, false, alpha, beta, col);
+                } else {
+                    //Principal variation search, only prove that the move is not better than alpha
+                    newScore = minMax(board, depth - 1, false, alpha, alpha + 1, col);
+                    if (newScore > alpha && newScore < beta && !aborted) {
+                        stats.researches++;
+                        newScore = minMax(board, depth - 1, false, alpha, beta, col);
                     }
+                }
+                board.undo(col);
+                if (aborted)
+                    return 0;
 
-                    alpha = Math.max(alpha, newScore);
-                    if (alpha >= beta)
-                        break;
+                if (newScore > score) {
+                    score = newScore;
+                    column = col;
+                }
 
+                alpha = Math.max(alpha, newScore);
+                if (alpha >= beta) {
+                    countCutoff(i);
+                    storeCutoff(board, AI, row, col, depth);
+                    break;
                 }
-                return new ScorePlacementPair(score, column);
-            } else { //Minimizing
-                score = Integer.MAX_VALUE;
-                for (int col : validMoves) {
-                    int row = board.getNextRow(col);
-                    Board copy = board.getCopy();
-                    copy.addTile(row, col, OPPONENT);
-
-                    newScore = minMax(copy, depth - 1, true, alpha, beta).score;
-
-                    if (newScore < score) {
-                        score = newScore;
-                        column = col;
+            }
+        } else { //Minimizing
+            score = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                int col = moves[i];
+                int row = board.getNextRow(col);
+                board.play(col, OPPONENT);
+                if (i == 0) {
+                    newScore = minMax(board, depth - 1, true, alpha, beta, col);
+                } else {
+                    //Principal variation search, only prove that the move is not better than beta
+                    newScore = minMax(board, depth - 1, true, beta - 1, beta, col);
+                    if (newScore < beta && newScore > alpha && !aborted) {
+                        stats.researches++;
+                        newScore = minMax(board, depth - 1, true, alpha, beta, col);
                     }
+                }
+                board.undo(col);
+                if (aborted)
+                    return 0;
+
+                if (newScore < score) {
+                    score = newScore;
+                    column = col;
+                }
 
-                    beta = Math.min(beta, newScore);
-                    if (beta <= alpha)
-                        break;
+                beta = Math.min(beta, newScore);
+                if (beta <= alpha) {
+                    countCutoff(i);
+                    storeCutoff(board, OPPONENT, row, col, depth);
+                    break;
                 }
-                return new ScorePlacementPair(score, column);
             }
         }
 
+        store(board, score, depth, bound(score, alphaOriginal, betaOriginal), column);
+
+        return score;
+    }
+
+    /**
+     * A column scored by analyzeAll together with the line of play the search expects after it,
+     * the principal variation. Sorts by the highest score first.
+     */
+    static class Variation implements Comparable<Variation> {
+        final int column;
+        final int score;
+        //The column first, then the best moves of both players in turn
+        final int[] moves;
+
+        Variation(int score, int[] moves) {
+            this.column = moves[0];
+            this.score = score;
+            this.moves = moves;
+        }
+
+        @Override
+        public int compareTo(Variation other) {
+            return Integer.compare(other.score, score);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder();
+            for (int move : moves)
+                line.append(' ').append(move + 1);
+            return "Score: " + score + " - Line:" + line;
+        }
     }
 
     /**
@@ -0,0 +1,260 @@
+package projects.connect4;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Checks the searches of the {@link AI} against each other on fixed positions. Every position is written as the
+ * columns played from the empty board, 1 to COLUMNS, with player 1 starting. None of them is won or has a forced
+ * move, so the AI always searches them.
+ */
+public class AITest {
+    private static final String[] POSITIONS = {
+            "", "4", "44", "755675", "55214344", "3225315157", "77124542442457", "1412514222441432",
+            "111641444336662222", "53714654556636633222", "1135423433411444317377", "47714474774322666466633"
+    };
+
+    private static final int MAX_DEPTH = 6;
+    private static final int THREADS = 4;
+
+    //Positions of every phase of the game, all with more than three moves
+    private static final String[] PONDER_POSITIONS = {"755675", "1412514222441432", "53714654556636633222"};
+    private static final int PONDER_DEPTH = 6;
+
+    //Positions that are their own mirror image on the standard board
+    private static final String[] SYMMETRIC_POSITIONS = {"", "4", "44", "1474", "2464", "444444"};
+    private static final int ANALYZE_DEPTH = 5;
+    private static final int PONDER_TIME = 500;
+
+    /**
+     * The parallel root search picks its move by the same rule as the sequential one, so the score of the root
+     * must be the same however many threads search it. Whether a move fails low against an alpha another thread
+     * has raised depends on the timing of the threads, so every position is searched at several depths.
+     */
+    @Test
+    public void testParallelSearchScoresAsSequential() {
+        for (String moves : POSITIONS) {
+            BitBoard board = board(moves);
+            int player = playerToMove(moves);
+
+            for (int depth = 2; depth <= MAX_DEPTH; depth++) {
+                AI sequential = createAI(player, depth);
+                AI parallel = createAI(player, depth);
+                parallel.setThreads(THREADS);
+
+                assertEquals(sequential.analyze(board, -1).score, parallel.analyze(board, -1).score);
+
+                //Shuts the pool of the parallel search down
+                parallel.setThreads(1);
+            }
+        }
+    }
+
+    /**
+     * At a fixed depth pondering searches the position after every reply to the depth of the AI, so when one of
+     * the replies is played the move found while pondering is returned without searching again.
+     */
+    @Test
+    public void testPonderHitAtFixedDepthReturnsPonderedMove() throws InterruptedException {
+        for (String moves : PONDER_POSITIONS) {
+            int player = playerToMove(moves);
+            AI sut = createAI(player, PONDER_DEPTH);
+
+            BitBoard board = board(moves.substring(0, moves.length() - 1));
+            sut.ponder(board);
+            while (sut.isPondering())
+                Thread.sleep(10);
+
+            board.play(lastMove(moves), opponent(player));
+            int col = sut.findBestMoveMinMax(board);
+
+            assertEquals(0, sut.stats.nodes);
+            assertEquals(1, sut.stats.iterations.size());
+            SearchStatistics.Iteration pondered = sut.stats.iterations.get(0);
+            assertEquals(PONDER_DEPTH, pondered.depth);
+            assertEquals(col, pondered.column);
+            assertEquals(createAI(player, PONDER_DEPTH).analyze(board, -1).score, pondered.score);
+        }
+    }
+
+    /**
+     * On time the search goes on from the depth reached while pondering, a search that starts over begins at depth 1.
+     */
+    @Test
+    public void testPonderHitOnTimeResumesFromPonderedDepth() throws InterruptedException {
+        for (String moves : PONDER_POSITIONS) {
+            int player = playerToMove(moves);
+            AI sut = createAI(player, 0);
+            sut.timeLimit = PONDER_TIME;
+
+            BitBoard board = board(moves.substring(0, moves.length() - 1));
+            sut.ponder(board);
+            Thread.sleep(PONDER_TIME);
+
+            board.play(lastMove(moves), opponent(player));
+            sut.findBestMoveMinMax(board);
+
+            assertFalse(sut.isPondering());
+            assertTrue(sut.stats.iterations.get(0).depth > 1);
+        }
+    }
+
+    /**
+     * When the opponent's reply leads to a position that was not searched while pondering, the AI stops pondering
+     * and searches the position as if it had not pondered at all.
+     */
+    @Test
+    public void testPonderMissSearchesNormally() throws InterruptedException {
+        for (String moves : PONDER_POSITIONS) {
+            int player = playerToMove(moves);
+            BitBoard board = board(moves);
+
+            //Three moves before the position, with the opponent to move, so no reply leads to it
+            BitBoard earlier = board(moves.substring(0, moves.length() - 3));
+
+            AI fixed = createAI(player, PONDER_DEPTH);
+            fixed.ponder(earlier);
+            Thread.sleep(PONDER_TIME / 10);
+            fixed.findBestMoveMinMax(board);
+
+            assertFalse(fixed.isPondering());
+            assertTrue(fixed.stats.nodes > 0);
+            assertEquals(1, fixed.stats.iterations.size());
+            assertEquals(PONDER_DEPTH, fixed.stats.iterations.get(0).depth);
+            assertEquals(createAI(player, PONDER_DEPTH).analyze(board, -1).score, fixed.stats.iterations.get(0).score);
+
+            AI timed = createAI(player, 0);
+            timed.timeLimit = PONDER_TIME;
+            timed.ponder(earlier);
+            Thread.sleep(PONDER_TIME);
+            timed.findBestMoveMinMax(board);
+
+            assertFalse(timed.isPondering());
+            assertEquals(1, timed.stats.iterations.get(0).depth);
+        }
+    }
+
+    /**
+     * analyzeAll searches every column with the whole window, sharing the table between the columns and mirroring
+     * the columns of a symmetric board. Every score must still be the score a search of the column on its own finds.
+     */
+    @Test
+    public void testAnalyzeAllScoresAsAnalyze() {
+        for (String[] positions : new String[][]{POSITIONS, SYMMETRIC_POSITIONS}) {
+            for (String moves : positions) {
+                BitBoard board = board(moves);
+                int player = playerToMove(moves);
+                AI.Variation[] variations = createAI(player, ANALYZE_DEPTH).analyzeAll(board);
+
+                assertEquals(Integer.bitCount(board.getPlayableColumns()), variations.length);
+                AI reference = createAI(player, ANALYZE_DEPTH);
+                for (int i = 0; i < variations.length; i++) {
+                    if (i > 0)
+                        assertTrue(variations[i - 1].score >= variations[i].score);
+
+                    reference.clear();
+                    assertEquals(reference.analyze(board, variations[i].column).score, variations[i].score);
+                }
+            }
+        }
+    }
+
+    /**
+     * On a symmetric board every column on the right scores as its mirror image on the left, with the mirror image
+     * of its line.
+     */
+    @Test
+    public void testAnalyzeAllMirrorsSymmetricBoard() {
+        for (String moves : SYMMETRIC_POSITIONS) {
+            //The positions are written for the standard board, on a board with another number of columns the
+            //center moves are not in the center
+            BitBoard board = board(moves);
+            if (!board.isSymmetric())
+                continue;
+
+            AI.Variation[] byColumn = new AI.Variation[Board.COLUMNS];
+            for (AI.Variation variation : createAI(playerToMove(moves), ANALYZE_DEPTH).analyzeAll(board))
+                byColumn[variation.column] = variation;
+
+            //The middle column of an odd board is its own mirror image, its line need not be symmetric
+            for (int col = 0; col < Board.COLUMNS / 2; col++) {
+                AI.Variation variation = byColumn[col];
+                AI.Variation mirrored = byColumn[Board.COLUMNS - 1 - col];
+                assertEquals(variation.score, mirrored.score);
+                assertEquals(variation.moves.length, mirrored.moves.length);
+                for (int i = 0; i < variation.moves.length; i++)
+                    assertEquals(Board.COLUMNS - 1 - variation.moves[i], mirrored.moves[i]);
+            }
+        }
+    }
+
+    /**
+     * With the zugzwang score turned off a position is scored by the heuristic alone, so at depth 1 every column
+     * scores what the heuristic gives the position after it.
+     */
+    @Test
+    public void testHeuristicAloneWithoutZugzwang() {
+        for (String moves : POSITIONS) {
+            //Some of the positions have more tiles in a column than a board with fewer rows holds
+            if (!fits(moves))
+                continue;
+
+            BitBoard board = board(moves);
+            int player = playerToMove(moves);
+            AI sut = createAI(player, 1);
+            sut.zugzwang = false;
+
+            for (int col = 0; col < Board.COLUMNS; col++) {
+                if (board.getNextRow(col) == Board.COLUMN_IS_FULL || board.isWinningMove(col, player))
+                    continue;
+
+                board.play(col, player);
+                int expected = sut.heuristic.evaluate(board, player);
+                board.undo(col);
+                assertEquals(expected, sut.analyze(board, col).score);
+            }
+        }
+    }
+
+    private static AI createAI(int player, int depth) {
+        AI ai = new AI(player, opponent(player), depth);
+        ai.verbose = false;
+        return ai;
+    }
+
+    private static BitBoard board(String moves) {
+        BitBoard board = new BitBoard();
+        int player = Board.PLAYER_1;
+        for (char move : moves.toCharArray()) {
+            board.play(move - '1', player);
+            player = opponent(player);
+        }
+        return board;
+    }
+
+    /**
+     * @return Whether every move of the position can be played on the board of the current size.
+     */
+    private static boolean fits(String moves) {
+        int[] heights = new int[Board.COLUMNS];
+        for (char move : moves.toCharArray()) {
+            int col = move - '1';
+            if (col >= Board.COLUMNS || ++heights[col] > Board.ROWS)
+                return false;
+        }
+        return true;
+    }
+
+    private static int lastMove(String moves) {
+        return moves.charAt(moves.length() - 1) - '1';
+    }
+
+    private static int playerToMove(String moves) {
+        return moves.length() % 2 == 0 ? Board.PLAYER_1 : Board.PLAYER_2;
+    }
+
+    private static int opponent(int player) {
+        return player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+    }
+}
@@ -0,0 +1,364 @@
+package projects.connect4;
+
+import java.util.ArrayList;
+
+/**
+ * Common base for the board representations of the game. It holds the constants of the game
+ * and the heuristic used to evaluate a position, which only needs to be able to read a tile at
+ * a given row and column. How the tiles are stored is up to the subclasses, {@link Board} uses a
+ * plain two dimensional array while {@link BitBoard} uses one bitboard per player for the search.
+ * <p>
+ * Rows are counted from the top of the board, row 0 is the top row and row ROWS - 1 is the bottom row.
+ */
+abstract class AbstractBoard {
+    //The size of the board and how many tiles in a row win. Standard Connect 4 unless other values are given with
+    //the system properties connect4.rows, connect4.columns and connect4.connect, for example -Dconnect4.columns=8.
+    //They are read once when the program starts and every board and AI in the program uses them.
+    static final int ROWS = Integer.getInteger("connect4.rows", 6);
+    static final int COLUMNS = Integer.getInteger("connect4.columns", 7);
+    static final int CONNECT = Integer.getInteger("connect4.connect", 4);
+
+    static {
+        //BitBoard needs a free bit on top of every column and the transposition table stores a column in 4 bits
+        if (ROWS < 1 || COLUMNS < 1 || COLUMNS > 14 || (ROWS + 1) * COLUMNS > Long.SIZE)
+            throw new IllegalArgumentException("A board of " + ROWS + " rows and " + COLUMNS + " columns is not " +
+                    "supported, there can be at most 14 columns and (rows + 1) * columns can be at most 64");
+        if (CONNECT < 2 || CONNECT > Math.max(ROWS, COLUMNS))
+            throw new IllegalArgumentException("Can not get " + CONNECT + " in a row on a board of " + ROWS +
+                    " rows and " + COLUMNS + " columns");
+    }
+
+    //The columns from the center and out, the order moves are tried in when nothing better is known
+    static final int[] CENTER_FIRST = createCenterFirst();
+
+    static final int EMPTY = 0;
+
+    static final int PLAYER_1 = 1;
+    static final int PLAYER_2 = 2;
+
+    static final int COLUMN_IS_FULL = -1;
+
+    abstract void addTile(int row, int col, int value);
+
+    /**
+     * Places a tile for the given player on the next free row of the column. Together with
+     * undo this lets the AI try out a move on the board itself instead of on a copy of it.
+     *
+     * @param col    The column to play in, must not be full.
+     * @param player The player placing the tile.
+     */
+    void play(int col, int player) {
+        addTile(getNextRow(col), col, player);
+    }
+
+    /**
+     * Takes back the last tile placed in the column.
+     *
+     * @param col The column to remove the top tile from, must not be empty.
+     */
+    abstract void undo(int col);
+
+    abstract int getNextRow(int col);
+
+    /**
+     * Move generation for the search, one bit per column so that nothing has to be allocated.
+     *
+     * @return A mask with bit col set for every column that is not full.
+     */
+    abstract int getPlayableColumns();
+
+    /**
+     * Boxed list of the columns that are not full, for code where convenience matters more than speed.
+     * The search uses getPlayableColumns instead.
+     *
+     * @return The columns that are not full, from left to right.
+     */
+    ArrayList<Integer> getValidMoves() {
+        ArrayList<Integer> availableColumns = new ArrayList<>();
+        for (int columns = getPlayableColumns(); columns != 0; columns &= columns - 1)
+            availableColumns.add(Integer.numberOfTrailingZeros(columns));
+
+        return availableColumns;
+    }
+
+    abstract AbstractBoard getCopy();
+
+    abstract boolean isFull();
+
+    abstract boolean isWonFor(int player);
+
+    /**
+     * This function is used when there is a possibility that the board at given indices is out
+     * of bounds. For example when evaluating a 3 in a row and checking if there is space on either
+     * side of the 3 connected tiles.
+     *
+     * @param r The given row
+     * @param c The given column
+     * @return Returns the piece on that given coordinate, 0 for EMPTY, 1 for PLAYER_1 and 2 for PLAYER_2,
+     * Returns -1 if the board is out of bounds on the given row/column
+     */
+    abstract int board(int r, int c);
+
+    /**
+     * Checks for a win from the last move only. A tile can only complete lines that go through it, so
+     * instead of looking at every tile of the board like isWonFor, only the four lines through the top
+     * tile of the column are followed in both directions from it.
+     *
+     * @param col The column the last tile was placed in.
+     * @return True if the top tile of the column is part of CONNECT in a row.
+     */
+    boolean isWonByLastMove(int col) {
+        int next = getNextRow(col);
+        int row = next == COLUMN_IS_FULL ? 0 : next + 1;
+        int player = board(row, col);
+        if (!(player == PLAYER_1 || player == PLAYER_2))
+            return false;
+
+        return lineLength(row, col, 0, 1, player) >= CONNECT      //Horizontal
+                || lineLength(row, col, 1, 0, player) >= CONNECT  //Vertical
+                || lineLength(row, col, 1, 1, player) >= CONNECT  //Diagonal top down
+                || lineLength(row, col, 1, -1, player) >= CONNECT; //Diagonal bottom up
+    }
+
+    /**
+     * @return The number of tiles of the player in an unbroken line through the given tile, which
+     * must belong to the player, following the direction and the opposite direction.
+     */
+    private int lineLength(int row, int col, int dRow, int dCol, int player) {
+        int length = 1;
+        for (int r = row + dRow, c = col + dCol; board(r, c) == player; r += dRow, c += dCol)
+            length++;
+        for (int r = row - dRow, c = col - dCol; board(r, c) == player; r -= dRow, c -= dCol)
+            length++;
+        return length;
+    }
+
+    /**
+     * @return True if the board is the standard 6 rows and 7 columns with four in a row to win. Files written
+     * for the standard board, such as the opening book, can only be used with it.
+     */
+    static boolean isStandard() {
+        return ROWS == 6 && COLUMNS == 7 && CONNECT == 4;
+    }
+
+    private static int[] createCenterFirst() {
+        int[] columns = new int[COLUMNS];
+        int count = 0;
+
+        //2 * col - (COLUMNS - 1) is twice the distance from the center, the left column first when they are as close
+        for (int distance = 0; count < COLUMNS; distance++)
+            for (int col = 0; col < COLUMNS; col++)
+                if (Math.abs(2 * col - (COLUMNS - 1)) == distance)
+                    columns[count++] = col;
+
+        return columns;
+    }
+
+    boolean isTerminal() {
+        return isFull() || isWonFor(PLAYER_1) || isWonFor(PLAYER_2);
+    }
+
+    /**
+     * Scores the position with the weights in {@link EvaluationWeights#WEIGHTS}, the hand picked ones
+     * unless a tuned weight file was found when the program started.
+     *
+     * @param piece The value of the piece. Should be 1 or 2 representing either
+     *              player 1 or player 2, throws IllegalArgumentException otherwise
+     * @return The total score the given move gives at the given position
+     */
+    int evaluateBoard(int piece) {
+        if (!(piece == PLAYER_1 || piece == PLAYER_2))
+            throw new IllegalArgumentException();
+
+        int[] weights = EvaluationWeights.WEIGHTS;
+        int score = 0;
+
+        //OM OPPONENT HAR 3 I RAD OCH EN TOM PLATS, SÅ ÄR ALLT DÅLIGT UTOM WIN ELLER DEN BLOCKERANDE PLATSEN
+        //GE -100 OM OPPONENT HAR 3 I RAD OCH 1 LEDIG
+        //I CONNECT 3, GE POÄNG OM 3 ÄR CONNECTED OCH MAN HAR MINST EN TOM SOM KAN GE POÄNG NÄSTA RUNDA
+
+        //EN LOOP GENOM ALLT OCH BOARD() SER TILL ATT VI EJ GÅR OFF BOUNDS
+
+        //Funkar för att 2 olika 2/3 i rad kollas nästan aldrig samtidigt utan tex om ett drag skapar 3 i rad
+        //både diagonalt och horizontellt kommer dessa kollas av i olika ställen i loopen och ge poäng för båda
+        //Kan finnas fall där dubbelpoäng missas (Måste testas mer)
+
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLUMNS; c++) {
+                if (winningPosition(r, c, piece))
+                    score += weights[EvaluationWeights.FOUR];
+                if (opponentWin(r, c, piece))
+                    score += weights[EvaluationWeights.OPPONENT_THREE];
+                if (connect3(r, c, piece))
+                    score += weights[EvaluationWeights.THREE];
+                if (connect2(r, c, piece))
+                    score += weights[EvaluationWeights.TWO];
+                if (centerPosition(r, c, piece))
+                    score += weights[EvaluationWeights.CENTER];
+            }
+        }
+
+        return score;
+    }
+
+    /**
+     * Counts the patterns evaluateBoard scores instead of adding up their weights, so that evaluateBoard
+     * is the sum of every count times the weight of the feature. Used to tune the weights, see WeightTuner.
+     *
+     * @param piece    The player to count the patterns for.
+     * @param features Array to add the counts to, indexed as {@link EvaluationWeights#WEIGHTS}.
+     * @param offset   Index in the array of the first feature.
+     */
+    void countFeatures(int piece, int[] features, int offset) {
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLUMNS; c++) {
+                if (winningPosition(r, c, piece))
+                    features[offset + EvaluationWeights.FOUR]++;
+                if (opponentWin(r, c, piece))
+                    features[offset + EvaluationWeights.OPPONENT_THREE]++;
+                if (connect3(r, c, piece))
+                    features[offset + EvaluationWeights.THREE]++;
+                if (connect2(r, c, piece))
+                    features[offset + EvaluationWeights.TWO]++;
+                if (centerPosition(r, c, piece))
+                    features[offset + EvaluationWeights.CENTER]++;
+            }
+        }
+    }
+
+    private boolean centerPosition(int r, int c, int piece) {
+        //Both middle columns on a board with an even number of columns
+        if (Math.abs(2 * c - (COLUMNS - 1)) > 1)
+            return false;
+        return piece == board(r, c);
+    }
+
+    boolean winningPosition(int r, int c, int piece) {
+        if (piece != board(r, c))
+            return false;
+
+        return lineFrom(r, c, 0, 1, piece)       //Horizontal
+                || lineFrom(r, c, -1, 0, piece)  //Vertical
+                || lineFrom(r, c, -1, 1, piece)  //Diagonal bottom up
+                || lineFrom(r, c, 1, 1, piece);  //Diagonal top down
+    }
+
+    /**
+     * @return True if the CONNECT - 1 tiles following the given tile in the direction belong to the piece.
+     */
+    private boolean lineFrom(int r, int c, int dRow, int dCol, int piece) {
+        for (int i = 1; i < CONNECT; i++)
+            if (board(r + i * dRow, c + i * dCol) != piece)
+                return false;
+
+        return true;
+    }
+
+    private boolean opponentWin(int r, int c, int piece) {
+        int opponentPiece = piece == PLAYER_1 ? PLAYER_2 : PLAYER_1;
+
+        //XXX0
+        boolean pos4 = opponentPiece == board(r, c) && opponentPiece == board(r, c + 1) &&
+                opponentPiece == board(r, c + 2) && board(r, c + 3) == EMPTY &&
+                moveIsPlayable(r, c + 3);
+        //XX0X
+        boolean pos3 = opponentPiece == board(r, c) && opponentPiece == board(r, c + 1) &&
+                opponentPiece == board(r, c + 3) && board(r, c + 2) == EMPTY &&
+                moveIsPlayable(r, c + 2);
+        //X0XX
+        boolean pos2 = opponentPiece == board(r, c) && opponentPiece == board(r, c + 2) &&
+                opponentPiece == board(r, c + 3) && board(r, c + 1) == EMPTY &&
+                moveIsPlayable(r, c + 1);
+        //0XXX
+        boolean pos1 = opponentPiece == board(r, c + 1) && opponentPiece == board(r, c + 2) &&
+                opponentPiece == board(r, c + 3) && board(r, c) == EMPTY && moveIsPlayable(r, c);
+
+        // System.out.println("XXX0 is present on the board: " + pos4 + "XX0X is present on the board: " +
+        //       pos3 + "X0XX is present on the board: " + pos2 + "0XXX is present on the board: " + pos1);
+
+        boolean vertical = opponentPiece == board(r, c) && opponentPiece == board(r - 1, c) && opponentPiece == board(r - 2, c) &&
+                board(r - 3, c) == EMPTY && moveIsPlayable(r - 3, c);
+
+        return pos4 || pos3 || pos2 || pos1 || vertical;
+    }
+
+    private boolean connect3(int r, int c, int piece) {
+        boolean horizontal = piece == board(r, c) && piece == board(r, c + 1) && piece == board(r, c + 2) &&
+                (board(r, c - 1) == EMPTY || board(r, c + 4) == EMPTY) &&
+                (moveIsPlayable(r, c - 1) || moveIsPlayable(r, c + 3));
+        //System.out.printf("This is r: %s c: %s, and this is board(r, c-1): %s and board(r, c + 4): %s\n", r, c, board(r, c - 1), board(r, c + 4));
+        boolean vertical = piece == board(r, c) && piece == board(r - 1, c) &&
+                piece == board(r - 2, c) && board(r - 3, c) == EMPTY;
+
+        boolean diagonalBottomUp = piece == board(r, c) && piece == board(r - 1, c + 1) && piece == board(r - 2, c + 2) &&
+                (board(r + 1, c - 1) == EMPTY || board(r - 3, c + 3) == EMPTY) &&
+                (moveIsPlayable(r + 1, c - 1) || moveIsPlayable(r - 3, c + 3));
+
+        boolean diagonalTopDown = piece == board(r, c) && piece == board(r + 1, c + 1) && piece == board(r + 2, c + 2) &&
+                (board(r - 1, c - 1) == EMPTY || board(r + 3, c + 3) == EMPTY) &&
+                (moveIsPlayable(r - 1, c - 1) || moveIsPlayable(r + 3, c + 3));
+
+        /*
+        if (horizontal)
+            System.out.println("Horizontal 3 in a row");
+        if (vertical)
+            System.out.println("Vertical 3 in a row");
+        if (diagonalBottomUp)
+            System.out.println("DiaBottomUp 3 in a row");
+        if (diagonalTopDown)
+            System.out.println("DiaTopDown 3 in a row");
+        */
+        return horizontal || vertical || diagonalBottomUp || diagonalTopDown;
+    }
+
+    //Kan ev förbättras med avseende på moveIsPlayable
+    private boolean connect2(int r, int c, int piece) {
+        boolean horizontal = piece == board(r, c) && piece == board(r, c + 1) &&
+                ((board(r, c - 1) == EMPTY && board(r, c - 2) == EMPTY) || // 2 to the left
+                        (board(r, c - 1) == EMPTY && board(r, c + 2) == EMPTY) || // 1 on either side
+                        (board(r, c + 2) == EMPTY && board(r, c + 3) == EMPTY)) && // 2 to the right
+                (moveIsPlayable(r, c - 1) || moveIsPlayable(r, c + 2)); //At least 1 of the adjacent are playable
+
+        boolean vertical = piece == board(r, c) && piece == board(r - 1, c) &&
+                board(r - 2, c) == EMPTY && board(r - 3, c) == EMPTY;
+
+        boolean diagonalBottomUp = piece == board(r, c) && piece == board(r - 1, c + 1) &&
+                ((board(r + 1, c - 1) == EMPTY && board(r + 2, c - 2) == EMPTY) || // 2 to the left
+                        (board(r + 1, c - 1) == EMPTY && board(r - 2, c + 2) == EMPTY) || // 1 on either side
+                        (board(r - 2, c + 2) == EMPTY) && board(r - 3, c + 3) == EMPTY) &&  // 2 to the right
+                (moveIsPlayable(r + 1, c - 1) || moveIsPlayable(r - 2, c + 2));
+
+        boolean diagonalTopDown = piece == board(r, c) && piece == board(r + 1, c + 1) &&
+                ((board(r - 1, c - 1) == EMPTY && board(r - 2, c - 2) == EMPTY) || // 2 to the left
+                        (board(r - 1, c - 1) == EMPTY && board(r + 2, c + 2) == EMPTY) || // 1 on either side
+                        (board(r + 2, c + 2) == EMPTY) && board(r + 3, c + 3) == EMPTY) &&  // 2 to the right
+                (moveIsPlayable(r - 1, c - 1) || moveIsPlayable(r + 2, c + 2));
+
+        return horizontal || vertical || diagonalBottomUp || diagonalTopDown;
+    }
+
+    private boolean moveIsPlayable(int r, int c) {
+        if (c < 0 || c >= COLUMNS)
+            return false;
+        return r == getNextRow(c);
+    }
+
+    void printBoard(String player1, String player2) {
+        for (int y = 0; y < ROWS; y++) {
+            for (int x = 0; x < COLUMNS; x++) {
+                int tile = board(y, x);
+                String toPrint = "0";
+
+                if (tile != EMPTY)
+                    toPrint = (tile == PLAYER_1) ? player1 : player2;
+
+                System.out.print(toPrint + " ");
+            }
+            System.out.println();
+        }
+        StringBuilder numbers = new StringBuilder();
+        for (int x = 0; x < COLUMNS; x++)
+            numbers.append(x + 1).append(' ');
+        System.out.println("=".repeat(2 * COLUMNS - 1) + "\n" + numbers.toString().trim());
+    }
+}
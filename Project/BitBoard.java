@@ -0,0 +1,397 @@
+package projects.connect4;
+
+import java.util.Random;
+
+/**
+ * Board used by the AI when searching. Instead of an int[][] every player has its own bitboard
+ * stored in a long, together with the height of every column. Placing a tile is a single bit
+ * operation and checking for a win is done with a couple of shifts and masks instead of scanning
+ * every tile on the board.
+ * <p>
+ * The bits are laid out column by column, starting from the bottom left corner, here for the standard
+ * board of 6 rows and 7 columns:
+ * <pre>
+ *   .  .  .  .  .  .  .     <- sentinel row, always empty
+ *   5 12 19 26 33 40 47
+ *   4 11 18 25 32 39 46
+ *   3 10 17 24 31 38 45
+ *   2  9 16 23 30 37 44
+ *   1  8 15 22 29 36 43
+ *   0  7 14 21 28 35 42
+ * </pre>
+ * Every column has one extra bit on top that is never set, so that shifting a line of tiles
+ * over the edge of a column can never wrap around and create a line that does not exist.
+ * <p>
+ * The board also keeps a Zobrist hash of the position, a random 64-bit key for every player and
+ * square xor-ed together for all the tiles on the board. It is updated with a single xor every time
+ * a tile is placed and is used as the key in the {@link TranspositionTable} of the AI. The hash of the
+ * mirrored position is kept the same way, so that a position and its mirror image can share table entries,
+ * see getCanonicalHash.
+ */
+class BitBoard extends AbstractBoard {
+    private static final int HEIGHT = ROWS + 1;
+
+    //One bit at the bottom of every column and all the bits of a single column
+    private static final long BOTTOM_ROW = createBottomRow();
+    private static final long COLUMN_MASK = (1L << HEIGHT) - 1;
+    //Every square of the board, all bits but the sentinels
+    private static final long BOARD_MASK = BOTTOM_ROW * ((1L << ROWS) - 1);
+    //The squares of the odd rows counted from 1 at the bottom, the first, third and so on
+    static final long ODD_ROWS = BOTTOM_ROW * (0x5555555555555555L & ((1L << ROWS) - 1));
+
+    //Fixed seed so that the same position always hashes to the same key
+    private static final long[][] ZOBRIST_KEYS = createZobristKeys(new Random(0xC0FFEE));
+
+    private long[] bitboards = new long[2];
+    private int[] heights = new int[COLUMNS];
+    private int moves;
+    private long hash;
+    private long mirrorHash;
+    private WindowScore windows = new WindowScore();
+
+    BitBoard() {
+    }
+
+    /**
+     * Creates a bitboard holding the same tiles as the given board.
+     *
+     * @param board The board to copy the tiles from.
+     */
+    BitBoard(AbstractBoard board) {
+        for (int col = 0; col < COLUMNS; col++)
+            for (int row = ROWS - 1; row >= 0 && board.board(row, col) != EMPTY; row--)
+                addTile(row, col, board.board(row, col));
+    }
+
+    /**
+     * Tiles are always expected to be placed on the next free row of the column,
+     * as given by getNextRow.
+     */
+    @Override
+    void addTile(int row, int col, int value) {
+        if (!(value == PLAYER_1 || value == PLAYER_2))
+            throw new IllegalArgumentException();
+
+        int height = ROWS - 1 - row;
+        int bit = bit(height, col);
+        bitboards[value - 1] |= 1L << bit;
+        hash ^= ZOBRIST_KEYS[value - 1][bit];
+        mirrorHash ^= ZOBRIST_KEYS[value - 1][bit(height, COLUMNS - 1 - col)];
+        windows.add(bit, value);
+        heights[col] = height + 1;
+        moves++;
+    }
+
+    /**
+     * Places a tile on top of the column. The column must not be full.
+     */
+    @Override
+    void play(int col, int player) {
+        int bit = bit(heights[col], col);
+        bitboards[player - 1] |= 1L << bit;
+        hash ^= ZOBRIST_KEYS[player - 1][bit];
+        mirrorHash ^= ZOBRIST_KEYS[player - 1][bit(heights[col], COLUMNS - 1 - col)];
+        windows.add(bit, player);
+        heights[col]++;
+        moves++;
+    }
+
+    /**
+     * Removes the top tile of the column, no matter which player it belongs to.
+     * The column must not be empty.
+     */
+    @Override
+    void undo(int col) {
+        heights[col]--;
+        moves--;
+
+        int bit = bit(heights[col], col);
+        int player = (bitboards[0] & (1L << bit)) != 0 ? 0 : 1;
+        bitboards[player] &= ~(1L << bit);
+        hash ^= ZOBRIST_KEYS[player][bit];
+        mirrorHash ^= ZOBRIST_KEYS[player][bit(heights[col], COLUMNS - 1 - col)];
+        windows.remove(bit, player + 1);
+    }
+
+    /**
+     * Faster alternative to evaluateBoard, see {@link WindowScore}. The score is kept up to
+     * date every time a tile is placed or removed so reading it is constant time.
+     *
+     * @param piece PLAYER_1 or PLAYER_2.
+     * @return The score of the position for the given player.
+     */
+    int evaluateWindows(int piece) {
+        return windows.score(piece);
+    }
+
+    /**
+     * Unlike the Zobrist hash, this key is unique for every position. Adding the bottom row to the mask of
+     * all tiles sets the bit right above the top tile of every column, which together with the tiles of
+     * the given player tells exactly where every tile is.
+     *
+     * The key is from the view of a player, so that a position and the same position with the colors
+     * swapped get the same key when seen from the player to move. The key is also laid out column by
+     * column, which makes it easy to get the key of the mirrored position, see mirrorKey.
+     *
+     * @param player The player to see the position from, usually the player to move.
+     * @return A key unique for the current position.
+     */
+    long getKey(int player) {
+        return bitboards[player - 1] | ((bitboards[0] | bitboards[1]) + BOTTOM_ROW);
+    }
+
+    /**
+     * @param key The key of a position, as given by getKey.
+     * @return The key of the same position mirrored around the center column.
+     */
+    static long mirrorKey(long key) {
+        long mirrored = 0;
+        for (int col = 0; col < COLUMNS; col++)
+            mirrored |= ((key >>> (col * HEIGHT)) & COLUMN_MASK) << ((COLUMNS - 1 - col) * HEIGHT);
+
+        return mirrored;
+    }
+
+    /**
+     * @return The Zobrist hash of the current position.
+     */
+    long getHash() {
+        return hash;
+    }
+
+    /**
+     * A position and its mirror image have the same score and mirrored best moves. Using the smaller of
+     * the two hashes as the key lets them share an entry, a column stored under the canonical hash must
+     * then be mirrored when isCanonical is false.
+     *
+     * @return The smaller of the Zobrist hashes of the position and of its mirror image.
+     */
+    long getCanonicalHash() {
+        return Math.min(hash, mirrorHash);
+    }
+
+    /**
+     * @return True if the canonical hash is the hash of the position itself rather than of its mirror image.
+     */
+    boolean isCanonical() {
+        return hash <= mirrorHash;
+    }
+
+    /**
+     * @return True if the position is its own mirror image, in which case mirrored moves lead to
+     * mirrored positions and only one of them has to be searched.
+     */
+    boolean isSymmetric() {
+        long key = getKey(PLAYER_1);
+        return key == mirrorKey(key);
+    }
+
+    /**
+     * @return The number of tiles on the board.
+     */
+    int getMoveCount() {
+        return moves;
+    }
+
+    @Override
+    int getNextRow(int col) {
+        return heights[col] == ROWS ? COLUMN_IS_FULL : ROWS - 1 - heights[col];
+    }
+
+    @Override
+    int getPlayableColumns() {
+        int columns = 0;
+        for (int x = 0; x < COLUMNS; x++)
+            if (heights[x] < ROWS)
+                columns |= 1 << x;
+
+        return columns;
+    }
+
+    /**
+     * @return The square every column that is not full would be played on next, laid out as the bitboards.
+     */
+    long getPlayableSquares() {
+        return ((bitboards[0] | bitboards[1]) + BOTTOM_ROW) & BOARD_MASK;
+    }
+
+    /**
+     * The threats of a player are the empty squares where a tile of the player would complete CONNECT in a row,
+     * whether they can be played yet or not. Used by {@link Threats}.
+     *
+     * @param player PLAYER_1 or PLAYER_2.
+     * @return The threats of the player, laid out as the bitboards.
+     */
+    long getThreats(int player) {
+        long tiles = bitboards[player - 1];
+        long threats = lineThreats(tiles, HEIGHT)    //Horizontal
+                | lineThreats(tiles, HEIGHT - 1)     //Diagonal top down
+                | lineThreats(tiles, HEIGHT + 1)     //Diagonal bottom up
+                | lineThreats(tiles, 1);             //Vertical
+
+        return threats & BOARD_MASK & ~(bitboards[0] | bitboards[1]);
+    }
+
+    /**
+     * A square is a threat if it is the gap in CONNECT squares in a row that are otherwise all the player's.
+     * For every place the gap can have in the line, the tiles on both sides of it are shifted onto the gap
+     * and and-ed together, in the same way as in hasLine. Tiles shifted off the board are lost, so the
+     * sentinel bits keep lines from wrapping around to the next column here too.
+     *
+     * @param distance The distance between two neighbouring tiles in the direction.
+     * @return The squares, empty or not, that are the gap of a line in the direction.
+     */
+    private static long lineThreats(long tiles, int distance) {
+        long threats = 0;
+        for (int gap = 0; gap < CONNECT; gap++) {
+            long line = -1L;
+            for (int i = -gap; i < CONNECT - gap; i++) {
+                int shift = Math.abs(i) * distance;
+                if (i == 0)
+                    continue;
+                else if (shift >= Long.SIZE)
+                    line = 0;
+                else
+                    line &= i > 0 ? tiles >>> shift : tiles << shift;
+            }
+            threats |= line;
+        }
+
+        return threats;
+    }
+
+    /**
+     * @param squares Squares laid out as the bitboards.
+     * @return The columns with at least one of the squares, as a bit per column.
+     */
+    static int columnsOf(long squares) {
+        int columns = 0;
+        for (int col = 0; col < COLUMNS; col++)
+            if ((squares & (COLUMN_MASK << col * HEIGHT)) != 0)
+                columns |= 1 << col;
+
+        return columns;
+    }
+
+    /**
+     * @param squares Squares laid out as the bitboards.
+     * @return Every square above one of the squares in the same column.
+     */
+    static long squaresAbove(long squares) {
+        long above = 0;
+        for (int i = 1; i < ROWS; i++) {
+            squares = (squares << 1) & BOARD_MASK;
+            above |= squares;
+        }
+
+        return above;
+    }
+
+    @Override
+    BitBoard getCopy() {
+        BitBoard copy = new BitBoard();
+        copy.bitboards = bitboards.clone();
+        copy.heights = heights.clone();
+        copy.moves = moves;
+        copy.hash = hash;
+        copy.mirrorHash = mirrorHash;
+        copy.windows = windows.getCopy();
+
+        return copy;
+    }
+
+    @Override
+    boolean isFull() {
+        return moves == ROWS * COLUMNS;
+    }
+
+    @Override
+    boolean isWonFor(int player) {
+        return isWin(bitboards[player - 1]);
+    }
+
+    /**
+     * Checking the whole bitboard of the player is as fast as following the lines through the last
+     * tile, so only the owner of the tile has to be found.
+     */
+    @Override
+    boolean isWonByLastMove(int col) {
+        if (heights[col] == 0)
+            return false;
+
+        long top = 1L << bit(heights[col] - 1, col);
+        return isWin((bitboards[0] & top) != 0 ? bitboards[0] : bitboards[1]);
+    }
+
+    /**
+     * @param col    A column that is not full.
+     * @param player The player to move.
+     * @return True if the player wins by playing in the column.
+     */
+    boolean isWinningMove(int col, int player) {
+        return isWin(bitboards[player - 1] | (1L << bit(heights[col], col)));
+    }
+
+    private static boolean isWin(long tiles) {
+        return hasLine(tiles, HEIGHT)           //Horizontal
+                || hasLine(tiles, HEIGHT - 1)   //Diagonal top down
+                || hasLine(tiles, HEIGHT + 1)   //Diagonal bottom up
+                || hasLine(tiles, 1);           //Vertical
+    }
+
+    /**
+     * Shifting the bitboard by the distance between two neighbouring tiles in a direction and
+     * and-ing it with itself leaves a bit for every pair in that direction. Doing the same with
+     * the pairs, shifted by twice the distance, leaves a bit for every four in a row. Longer lines
+     * are found by doubling the same way, and a length that is not a power of two by and-ing the
+     * longest power of two with itself shifted by the rest, so that the two overlap.
+     *
+     * @param distance The distance between two neighbouring tiles in the direction.
+     * @return True if there are CONNECT tiles in a row in the direction.
+     */
+    private static boolean hasLine(long tiles, int distance) {
+        int length = 1;
+        while (2 * length <= CONNECT) {
+            tiles &= tiles >>> (length * distance);
+            length *= 2;
+        }
+        if (length < CONNECT)
+            tiles &= tiles >>> ((CONNECT - length) * distance);
+
+        return tiles != 0;
+    }
+
+    @Override
+    int board(int r, int c) {
+        if (r >= ROWS || c >= COLUMNS || r < 0 || c < 0)
+            return -1;
+
+        long mask = 1L << bit(ROWS - 1 - r, c);
+        if ((bitboards[0] & mask) != 0)
+            return PLAYER_1;
+        if ((bitboards[1] & mask) != 0)
+            return PLAYER_2;
+        return EMPTY;
+    }
+
+    private static int bit(int height, int col) {
+        return col * HEIGHT + height;
+    }
+
+    private static long createBottomRow() {
+        long bottom = 0;
+        for (int col = 0; col < COLUMNS; col++)
+            bottom |= 1L << bit(0, col);
+
+        return bottom;
+    }
+
+    private static long[][] createZobristKeys(Random rand) {
+        long[][] keys = new long[2][COLUMNS * HEIGHT];
+        for (int player = 0; player < keys.length; player++)
+            for (int bit = 0; bit < keys[player].length; bit++)
+                keys[player][bit] = rand.nextLong();
+
+        return keys;
+    }
+}
@@ -0,0 +1,181 @@
+package projects.connect4;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Plays random games on a {@link BitBoard} and a {@link Board} side by side and checks that the bitboard,
+ * with everything it keeps up to date as tiles are placed and removed, agrees with the simple board.
+ * The board geometry is read from the system properties, so run the tests again with for example
+ * -Dconnect4.rows=7 -Dconnect4.columns=8 -Dconnect4.connect=5 to check another geometry.
+ */
+public class BitBoardTest {
+    private static final int GAMES = 500;
+
+    private final Random rnd = new Random();
+
+    @Test
+    public void testAgainstBoard() {
+        for (int game = 0; game < GAMES; game++) {
+            BitBoard sut = new BitBoard();
+            Board oracle = new Board();
+            int player = Board.PLAYER_1;
+
+            while (true) {
+                int col = randomColumn(sut);
+                for (int c = 0; c < Board.COLUMNS; c++) {
+                    assertEquals(oracle.getNextRow(c), sut.getNextRow(c));
+                    if (oracle.getNextRow(c) != Board.COLUMN_IS_FULL)
+                        assertEquals(wins(oracle, c, player), sut.isWinningMove(c, player));
+                }
+
+                sut.play(col, player);
+                oracle.play(col, player);
+
+                for (int r = 0; r < Board.ROWS; r++)
+                    for (int c = 0; c < Board.COLUMNS; c++)
+                        assertEquals(oracle.board(r, c), sut.board(r, c));
+                assertEquals(oracle.getPlayableColumns(), sut.getPlayableColumns());
+                assertEquals(oracle.isWonByLastMove(col), sut.isWonByLastMove(col));
+                assertEquals(oracle.isWonFor(Board.PLAYER_1), sut.isWonFor(Board.PLAYER_1));
+                assertEquals(oracle.isWonFor(Board.PLAYER_2), sut.isWonFor(Board.PLAYER_2));
+                assertEquals(oracle.isFull(), sut.isFull());
+                assertEquals(oracle.evaluateBoard(player), sut.evaluateBoard(player));
+
+                if (sut.isWonByLastMove(col) || sut.isFull())
+                    break;
+                player = opponent(player);
+            }
+        }
+    }
+
+    @Test
+    public void testThreats() {
+        for (int game = 0; game < GAMES; game++) {
+            BitBoard sut = new BitBoard();
+            Board oracle = new Board();
+            int player = Board.PLAYER_1;
+
+            while (true) {
+                for (int piece = Board.PLAYER_1; piece <= Board.PLAYER_2; piece++) {
+                    long threats = sut.getThreats(piece);
+                    for (int r = 0; r < Board.ROWS; r++)
+                        for (int c = 0; c < Board.COLUMNS; c++)
+                            assertEquals(isThreat(oracle, r, c, piece), isSet(threats, r, c));
+                }
+
+                int col = randomColumn(sut);
+                sut.play(col, player);
+                oracle.play(col, player);
+                if (sut.isWonByLastMove(col) || sut.isFull())
+                    break;
+                player = opponent(player);
+            }
+        }
+    }
+
+    /**
+     * The score, hash and keys are all updated a tile at a time, so after every move and every move taken
+     * back they must be the same as on a board built from scratch with the same tiles.
+     */
+    @Test
+    public void testIncrementalStateAfterPlayAndUndo() {
+        for (int game = 0; game < GAMES; game++) {
+            BitBoard sut = new BitBoard();
+            Board oracle = new Board();
+            int[] moves = new int[Board.ROWS * Board.COLUMNS];
+            int count = 0;
+            int player = Board.PLAYER_1;
+
+            while (!sut.isFull()) {
+                if (count > 0 && rnd.nextInt(4) == 0) {
+                    count--;
+                    sut.undo(moves[count]);
+                    oracle.undo(moves[count]);
+                    player = opponent(player);
+                } else {
+                    //The game goes on after a win, the state is kept up to date all the same
+                    int col = randomColumn(sut);
+                    sut.play(col, player);
+                    oracle.play(col, player);
+                    moves[count++] = col;
+                    player = opponent(player);
+                }
+
+                BitBoard fresh = new BitBoard(oracle);
+                assertEquals(count, sut.getMoveCount());
+                assertEquals(fresh.getHash(), sut.getHash());
+                assertEquals(fresh.getCanonicalHash(), sut.getCanonicalHash());
+                assertEquals(fresh.getKey(Board.PLAYER_1), sut.getKey(Board.PLAYER_1));
+                assertEquals(fresh.getKey(Board.PLAYER_2), sut.getKey(Board.PLAYER_2));
+                assertEquals(fresh.evaluateWindows(Board.PLAYER_1), sut.evaluateWindows(Board.PLAYER_1));
+                assertEquals(-sut.evaluateWindows(Board.PLAYER_1), sut.evaluateWindows(Board.PLAYER_2));
+            }
+        }
+    }
+
+    @Test
+    public void testMirrorImage() {
+        for (int game = 0; game < GAMES; game++) {
+            BitBoard sut = new BitBoard();
+            BitBoard mirrored = new BitBoard();
+            int player = Board.PLAYER_1;
+
+            while (true) {
+                int col = randomColumn(sut);
+                sut.play(col, player);
+                mirrored.play(Board.COLUMNS - 1 - col, player);
+
+                assertEquals(mirrored.getCanonicalHash(), sut.getCanonicalHash());
+                assertEquals(mirrored.getKey(player), BitBoard.mirrorKey(sut.getKey(player)));
+                assertEquals(sut.getKey(player), BitBoard.mirrorKey(BitBoard.mirrorKey(sut.getKey(player))));
+                assertEquals(sut.getHash() == mirrored.getHash(), sut.isSymmetric());
+                assertEquals(sut.isSymmetric(), mirrored.isSymmetric());
+                assertEquals(mirrored.evaluateWindows(player), sut.evaluateWindows(player));
+
+                if (sut.isWonByLastMove(col) || sut.isFull())
+                    break;
+                player = opponent(player);
+            }
+        }
+    }
+
+    private int randomColumn(BitBoard board) {
+        int col;
+        do {
+            col = rnd.nextInt(Board.COLUMNS);
+        } while (board.getNextRow(col) == Board.COLUMN_IS_FULL);
+        return col;
+    }
+
+    private static boolean wins(Board board, int col, int player) {
+        board.play(col, player);
+        boolean won = board.isWonFor(player);
+        board.undo(col);
+        return won;
+    }
+
+    /**
+     * A threat is an empty square where a tile of the player would win, whether it can be played yet or not.
+     */
+    private static boolean isThreat(Board board, int r, int c, int player) {
+        if (board.board(r, c) != Board.EMPTY)
+            return false;
+
+        Board copy = board.getCopy();
+        copy.addTile(r, c, player);
+        return copy.isWonFor(player);
+    }
+
+    private static boolean isSet(long squares, int r, int c) {
+        int bit = c * (Board.ROWS + 1) + Board.ROWS - 1 - r;
+        return (squares & (1L << bit)) != 0;
+    }
+
+    private static int opponent(int player) {
+        return player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+    }
+}
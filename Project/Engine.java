@@ -0,0 +1,36 @@
+package projects.connect4;
+
+/**
+ * Something that chooses moves for one of the players, so that the games and the tournament
+ * can be played with any kind of AI. See {@link AI} and {@link MonteCarloAI}.
+ */
+interface Engine {
+
+    /**
+     * @param board The board with the current game state, must not be won or full.
+     * @return The column to play on.
+     */
+    int findBestMove(AbstractBoard board);
+
+    /**
+     * @return How much work the last call to findBestMove did, positions searched by the
+     * minmax search or games played out by the Monte Carlo search.
+     */
+    long getNodeCount();
+
+    /**
+     * Starts thinking about the opponent's replies in the background while the opponent is thinking,
+     * so that the next call to findBestMove has less left to do. Does nothing by default.
+     *
+     * @param board The board after the engine's own move, with the opponent to move.
+     */
+    default void ponder(AbstractBoard board) {
+    }
+
+    /**
+     * Stops thinking started by ponder and waits until it has stopped. What was found is kept for
+     * the next call to findBestMove. Does nothing if the engine is not pondering.
+     */
+    default void stopPondering() {
+    }
+}
@@ -0,0 +1,133 @@
+package projects.connect4;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size cache of heuristic scores, used by the AI so that a leaf position reached again does not
+ * have to be evaluated again. The same leaves are reached in many subtrees of a search, through different
+ * orders of the same moves, and again on the next move of the game.
+ * <p>
+ * Unlike the {@link TranspositionTable} the cache holds nothing but the score, and the score of a position
+ * never changes, so which entry to keep only depends on how useful it is. The slots are grouped in buckets
+ * of WAYS slots and a position can be stored in any slot of its bucket. Entries are evicted with the clock
+ * algorithm: every entry has a referenced bit that is set when it is read. When a new entry needs a slot,
+ * the hand of the bucket goes around the slots, clearing the bit of every referenced entry it passes, and
+ * the first entry without the bit is replaced. Entries that keep being read are kept, ones that are not
+ * go around once more and are then replaced.
+ * <p>
+ * The cache can be shared between several searching threads without locking, in the same way as the
+ * transposition table. The key of every entry is stored xor-ed with its data, so that an entry half
+ * written by one thread while another reads it is simply treated as missing. The referenced bits and
+ * hands can be lost when two threads write at the same time, which only makes the eviction less exact.
+ */
+class EvaluationCache {
+    static final long NO_ENTRY = 0;
+
+    //Each entry is a long for the key and a long for the data
+    private static final int BYTES_PER_ENTRY = 16;
+
+    //Slots a position can be stored in
+    private static final int WAYS = 4;
+
+    //Layout of the data in an entry, the score takes up the lowest 32 bits and the tag the highest bits.
+    //Every entry has the valid bit so that no entry is NO_ENTRY.
+    private static final long REFERENCED = 1L << 32;
+    private static final long VALID = 1L << 33;
+    private static final int TAG_SHIFT = 34;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final byte[] hands;
+    private final int mask;
+
+    /**
+     * @param megabytes The memory budget of the cache. The number of entries is rounded down to the
+     *                  closest power of two that fits within the budget.
+     */
+    EvaluationCache(int megabytes) {
+        if (megabytes < 1)
+            throw new IllegalArgumentException("The cache needs at least 1 MB, was " + megabytes);
+
+        long maxEntries = (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY;
+        int size = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 30));
+
+        keys = new long[size];
+        entries = new long[size];
+        hands = new byte[size / WAYS];
+        mask = size - 1;
+    }
+
+    /**
+     * @param key A key unique for the position, see {@link BitBoard#getKey(int)}.
+     * @param tag Tells apart scores of the same position from different evaluations, a small number.
+     * @return The entry stored for the position or NO_ENTRY if the position is not in the cache.
+     */
+    long get(long key, int tag) {
+        int bucket = bucket(key);
+        for (int i = bucket; i < bucket + WAYS; i++) {
+            long entry = entries[i];
+            if (entry != NO_ENTRY && (keys[i] ^ entry) == key && entry >>> TAG_SHIFT == tag) {
+                if ((entry & REFERENCED) == 0)
+                    write(i, key, entry | REFERENCED);
+                return entry;
+            }
+        }
+
+        return NO_ENTRY;
+    }
+
+    /**
+     * Stores the score of a position that is not in the cache, in the first slot of the bucket
+     * without the referenced bit from the hand of the bucket and on.
+     *
+     * @param key   A key unique for the position.
+     * @param tag   The tag of the evaluation, as given to get.
+     * @param score The heuristic score of the position.
+     */
+    void put(long key, int tag, int score) {
+        int bucket = bucket(key);
+        int hand = hands[bucket / WAYS];
+
+        //After going around once every bit has been cleared, so a slot is found within WAYS + 1 steps
+        int slot;
+        while (true) {
+            slot = bucket + hand;
+            hand = (hand + 1) % WAYS;
+
+            long entry = entries[slot];
+            if ((entry & REFERENCED) == 0)
+                break;
+            write(slot, keys[slot] ^ entry, entry & ~REFERENCED);
+        }
+
+        hands[bucket / WAYS] = (byte) hand;
+        write(slot, key, (score & 0xFFFFFFFFL) | VALID | ((long) tag << TAG_SHIFT));
+    }
+
+    /**
+     * Removes every entry, as if the cache was just created.
+     */
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, NO_ENTRY);
+        Arrays.fill(hands, (byte) 0);
+    }
+
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    private void write(int slot, long key, long entry) {
+        keys[slot] = key ^ entry;
+        entries[slot] = entry;
+    }
+
+    /**
+     * @return The first slot of the bucket of the key. The keys are laid out by column, so they are
+     * mixed to spread the positions evenly over the buckets.
+     */
+    int bucket(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32) & mask & -WAYS;
+    }
+}
@@ -0,0 +1,130 @@
+package projects.connect4;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+
+import org.junit.Test;
+
+/**
+ * Checks the {@link EvaluationCache} on keys chosen to fall in the same bucket, so that which entries are
+ * evicted is known.
+ */
+public class EvaluationCacheTest {
+    private static final int CLASSIC = Heuristic.CLASSIC.ordinal();
+    private static final int WINDOWS = Heuristic.WINDOWS.ordinal();
+
+    //The slots of a bucket, as in the cache
+    private static final int WAYS = 4;
+
+    @Test
+    public void testHitAfterPut() {
+        EvaluationCache sut = new EvaluationCache(1);
+        long[] keys = keysInBucket(sut, 2);
+
+        assertEquals(EvaluationCache.NO_ENTRY, sut.get(keys[0], CLASSIC));
+        sut.put(keys[0], CLASSIC, -1234);
+        sut.put(keys[1], CLASSIC, 0);
+
+        assertEquals(-1234, EvaluationCache.score(sut.get(keys[0], CLASSIC)));
+        assertEquals(0, EvaluationCache.score(sut.get(keys[1], CLASSIC)));
+    }
+
+    /**
+     * With every slot of the bucket taken, the hand is back at the first slot. The entries read since they were
+     * put are passed over, losing their referenced bit, and the first entry that has not been read is replaced.
+     */
+    @Test
+    public void testClockEvictsFirstEntryNotRead() {
+        EvaluationCache sut = new EvaluationCache(1);
+        long[] keys = keysInBucket(sut, WAYS + 2);
+
+        for (int i = 0; i < WAYS; i++)
+            sut.put(keys[i], CLASSIC, i);
+        sut.get(keys[0], CLASSIC);
+        sut.get(keys[1], CLASSIC);
+
+        sut.put(keys[WAYS], CLASSIC, WAYS);
+        assertEquals(EvaluationCache.NO_ENTRY, sut.get(keys[2], CLASSIC));
+        for (int i : new int[]{0, 1, 3, WAYS})
+            assertEquals(i, EvaluationCache.score(sut.get(keys[i], CLASSIC)));
+
+        //Every entry has just been read, so the hand goes around once, clearing them all, and replaces the
+        //entry in the slot after the last one replaced, where the fourth key is
+        sut.put(keys[WAYS + 1], CLASSIC, WAYS + 1);
+        assertEquals(EvaluationCache.NO_ENTRY, sut.get(keys[3], CLASSIC));
+        for (int i : new int[]{0, 1, WAYS, WAYS + 1})
+            assertEquals(i, EvaluationCache.score(sut.get(keys[i], CLASSIC)));
+    }
+
+    @Test
+    public void testTagKeepsHeuristicsApart() {
+        EvaluationCache sut = new EvaluationCache(1);
+        long key = keysInBucket(sut, 1)[0];
+
+        sut.put(key, CLASSIC, 10);
+        assertEquals(EvaluationCache.NO_ENTRY, sut.get(key, WINDOWS));
+
+        sut.put(key, WINDOWS, 20);
+        assertEquals(10, EvaluationCache.score(sut.get(key, CLASSIC)));
+        assertEquals(20, EvaluationCache.score(sut.get(key, WINDOWS)));
+    }
+
+    /**
+     * Two threads writing the same slot at the same time can leave the key of one entry next to the data of the
+     * other. Neither position may then be found, least of all with the score of the other.
+     */
+    @Test
+    public void testTornWriteIsMiss() throws ReflectiveOperationException {
+        EvaluationCache sut = new EvaluationCache(1);
+        long[] keys = keysInBucket(sut, 2);
+        long[] storedKeys = field(sut, "keys");
+        long[] entries = field(sut, "entries");
+
+        //Both keys are written to the first slot of the bucket, each in a cache of its own
+        int slot = sut.bucket(keys[0]);
+        sut.put(keys[0], CLASSIC, 1);
+        long first = entries[slot];
+        long firstKey = storedKeys[slot];
+
+        EvaluationCache other = new EvaluationCache(1);
+        other.put(keys[1], CLASSIC, 2);
+        long[] otherKeys = field(other, "keys");
+        long[] otherEntries = field(other, "entries");
+
+        //The key of the second entry with the data of the first
+        storedKeys[slot] = otherKeys[slot];
+        assertEquals(EvaluationCache.NO_ENTRY, sut.get(keys[0], CLASSIC));
+        assertEquals(EvaluationCache.NO_ENTRY, sut.get(keys[1], CLASSIC));
+
+        //The key of the first entry with the data of the second
+        storedKeys[slot] = firstKey;
+        entries[slot] = otherEntries[slot];
+        assertEquals(EvaluationCache.NO_ENTRY, sut.get(keys[0], CLASSIC));
+        assertEquals(EvaluationCache.NO_ENTRY, sut.get(keys[1], CLASSIC));
+
+        //Whole again
+        entries[slot] = first;
+        assertEquals(1, EvaluationCache.score(sut.get(keys[0], CLASSIC)));
+    }
+
+    /**
+     * @return Different keys that are all stored in the same bucket of the cache.
+     */
+    private static long[] keysInBucket(EvaluationCache cache, int count) {
+        long[] keys = new long[count];
+        int bucket = cache.bucket(1);
+        int found = 0;
+        for (long key = 1; found < count; key++)
+            if (cache.bucket(key) == bucket)
+                keys[found++] = key;
+
+        return keys;
+    }
+
+    private static long[] field(EvaluationCache cache, String name) throws ReflectiveOperationException {
+        Field field = EvaluationCache.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (long[]) field.get(cache);
+    }
+}
@@ -0,0 +1,123 @@
+package projects.connect4;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * The weights evaluateBoard gives every pattern it finds, see {@link AbstractBoard#evaluateBoard(int)}.
+ * The weights were picked by hand but can be tuned from games with {@link WeightTuner}, which writes
+ * them to a weight file. The file is loaded when the weights are first used if it exists, otherwise
+ * the hand picked weights are used.
+ * <p>
+ * The weight file is text with one feature per line, the name of the feature and its weight separated
+ * by a space. Every feature must be in the file. Empty lines and lines starting with # are ignored.
+ */
+class EvaluationWeights {
+    static final String DEFAULT_FILE = "connect4.weights";
+
+    //The features, indices into the weights
+    static final int FOUR = 0;
+    static final int OPPONENT_THREE = 1;
+    static final int THREE = 2;
+    static final int TWO = 3;
+    static final int CENTER = 4;
+    static final int FEATURES = 5;
+
+    //Names of the features in the weight file
+    static final List<String> NAMES = List.of("four", "opponentThree", "three", "two", "center");
+
+    private static final int[] HAND_PICKED = {1000, -1000, 50, 10, 2};
+
+    //The weights evaluateBoard uses, must not be changed
+    static final int[] WEIGHTS = loadAtStartup();
+
+    private EvaluationWeights() {
+    }
+
+    /**
+     * @return A copy of the weights the game was written with.
+     */
+    static int[] handPicked() {
+        return HAND_PICKED.clone();
+    }
+
+    private static int[] loadAtStartup() {
+        Path file = Paths.get(DEFAULT_FILE);
+        if (!Files.exists(file))
+            return handPicked();
+
+        try {
+            return load(file);
+        } catch (IOException e) {
+            System.out.println("Could not load the evaluation weights, using the default weights. " + e.getMessage());
+            return handPicked();
+        }
+    }
+
+    /**
+     * @param file The weight file.
+     * @return The weights, indexed by feature.
+     * @throws IOException If the file could not be read or a feature is missing or unknown.
+     */
+    static int[] load(Path file) throws IOException {
+        int[] weights = new int[FEATURES];
+        boolean[] found = new boolean[FEATURES];
+
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            String[] parts = line.split("\\s+");
+            int feature = NAMES.indexOf(parts[0]);
+            if (parts.length != 2 || feature == -1)
+                throw new IOException("Unexpected line in " + file + ": " + line);
+
+            try {
+                weights[feature] = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Not a weight in " + file + ": " + line);
+            }
+            found[feature] = true;
+        }
+
+        for (int feature = 0; feature < FEATURES; feature++)
+            if (!found[feature])
+                throw new IOException("No weight for " + NAMES.get(feature) + " in " + file);
+
+        return weights;
+    }
+
+    /**
+     * Writes the weights to a file that load can read.
+     *
+     * @param file    The weight file, replaced if it exists.
+     * @param weights The weights, indexed by feature.
+     * @param comment Written first in the file, may be null.
+     * @throws IOException If the file could not be written.
+     */
+    static void save(Path file, int[] weights, String comment) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (comment != null) {
+                out.write("# " + comment);
+                out.newLine();
+            }
+            for (int feature = 0; feature < FEATURES; feature++) {
+                out.write(NAMES.get(feature) + " " + weights[feature]);
+                out.newLine();
+            }
+        }
+    }
+
+    static String toString(int[] weights) {
+        StringBuilder text = new StringBuilder();
+        for (int feature = 0; feature < FEATURES; feature++)
+            text.append(feature == 0 ? "" : ", ").append(NAMES.get(feature)).append(' ').append(weights[feature]);
+        return text.toString();
+    }
+}
@@ -1,4 +1,47 @@
 package projects.connect4;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
 public abstract class Game {
+    private final int[] moves = new int[AbstractBoard.ROWS * AbstractBoard.COLUMNS];
+    private int moveCount;
+
+    /**
+     * Remembers a move so that the game can be saved when it ends.
+     *
+     * @param col The column the tile was placed in.
+     */
+    void recordMove(int col) {
+        moves[moveCount++] = col;
+    }
+
+    /**
+     * @param in A line typed by the player.
+     * @return The column, from 0, if the line is a column number from 1 to COLUMNS, otherwise -1.
+     */
+    static int parseColumn(String in) {
+        try {
+            int col = Integer.parseInt(in.trim()) - 1;
+            return col >= 0 && col < AbstractBoard.COLUMNS ? col : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Appends the moves of the game to the game log, so that it can be analysed later by GameAnalyzer.
+     *
+     * @param firstPlayer The player who made the first move.
+     * @param result      How the game ended, see {@link GameLog.Record}.
+     */
+    void saveGame(int firstPlayer, int result) {
+        try {
+            GameLog.append(Paths.get(GameLog.DEFAULT_FILE),
+                    new GameLog.Record(firstPlayer, Arrays.copyOf(moves, moveCount), result));
+        } catch (IOException e) {
+            System.out.println("Could not save the game. " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,214 @@
+package projects.connect4;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays the games of a {@link GameLog} and searches every position with the AI to find the moves that
+ * were much worse than the best move, the blunders. For every move the best move is searched and, if another
+ * move was played, the played move is searched too. The difference between their scores is how much the
+ * evaluation of the game swung because of the move.
+ * <p>
+ * The log is read one game at a time while the games are analysed in parallel, one game per core. Only a few
+ * games are read ahead of the analysis so that logs with any number of games can be analysed without running
+ * out of memory. Blunders are printed as they are found, the worst swings of all games at the end.
+ * <p>
+ * Usage: GameAnalyzer [file] [depth] [threshold]
+ * file - The game log to analyse, connect4.games by default.
+ * depth - How deep every position is searched, 8 by default.
+ * threshold - How much worse than the best move a move must be to count as a blunder, 500 by default.
+ */
+class GameAnalyzer {
+    private static final int DEFAULT_DEPTH = 8;
+    private static final int DEFAULT_THRESHOLD = 500;
+
+    //How many of the worst moves are listed at the end
+    private static final int WORST_MOVES = 10;
+
+    //How many games are read ahead per thread
+    private static final int GAMES_PER_THREAD = 4;
+
+    private final int depth;
+    private final int threshold;
+
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLong positions = new AtomicLong();
+    private final AtomicLong blunders = new AtomicLong();
+    private final AtomicLong gamesWithBlunders = new AtomicLong();
+
+    //The worst moves found so far, the least bad of them first so that it is the one replaced
+    private final PriorityQueue<Swing> worst = new PriorityQueue<>();
+
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    //The AIs are not thread safe so every thread gets its own, one for each player
+    private final ThreadLocal<AI[]> ais;
+
+    GameAnalyzer(int depth, int threshold) {
+        this.depth = depth;
+        this.threshold = threshold;
+
+        ais = ThreadLocal.withInitial(() -> {
+            AI first = new AI(Board.PLAYER_1, Board.PLAYER_2, depth);
+            AI second = new AI(Board.PLAYER_2, Board.PLAYER_1, depth);
+            first.verbose = false;
+            second.verbose = false;
+            return new AI[]{first, second};
+        });
+    }
+
+    /**
+     * Analyses every game of the log and prints the results.
+     *
+     * @param file    The game log.
+     * @param threads The number of games to analyse at the same time.
+     * @throws IOException If the log could not be read.
+     */
+    void analyze(Path file, int threads) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Semaphore readAhead = new Semaphore(threads * GAMES_PER_THREAD);
+        long start = System.currentTimeMillis();
+
+        try (GameLog.Reader reader = GameLog.open(file)) {
+            int number = 0;
+            for (GameLog.Record game = reader.next(); game != null && failure.get() == null; game = reader.next()) {
+                readAhead.acquire();
+
+                int gameNumber = ++number;
+                GameLog.Record record = game;
+                pool.execute(() -> {
+                    try {
+                        analyzeGame(gameNumber, record);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        readAhead.release();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+
+        if (failure.get() != null)
+            throw failure.get();
+
+        printResults(System.currentTimeMillis() - start);
+    }
+
+    private void analyzeGame(int number, GameLog.Record game) {
+        AI[] players = ais.get();
+        Board board = new Board();
+        boolean blundered = false;
+
+        for (int move = 0; move < game.moves.length; move++) {
+            int player = game.player(move);
+            int col = game.moves[move];
+            AI ai = players[player - 1];
+
+            AI.ScorePlacementPair best = ai.analyze(board, -1);
+            int played = best.column == col ? best.score : ai.analyze(board, col).score;
+            positions.incrementAndGet();
+
+            Swing swing = new Swing(number, move, player, col, best.column, best.score, played);
+            if (swing.loss() >= threshold) {
+                blunders.incrementAndGet();
+                blundered = true;
+                System.out.println(swing);
+            }
+            if (swing.loss() > 0)
+                rememberIfWorst(swing);
+
+            board.addTile(board.getNextRow(col), col, player);
+        }
+
+        games.incrementAndGet();
+        if (blundered)
+            gamesWithBlunders.incrementAndGet();
+    }
+
+    private synchronized void rememberIfWorst(Swing swing) {
+        worst.add(swing);
+        if (worst.size() > WORST_MOVES)
+            worst.poll();
+    }
+
+    private synchronized void printResults(long millis) {
+        System.out.printf("Analysed %d games, %d positions at depth %d in %.1f seconds, %.0f positions per second.%n",
+                games.get(), positions.get(), depth, millis / 1000.0, positions.get() * 1000.0 / Math.max(1, millis));
+        System.out.printf("%d blunders losing at least %d, in %d games.%n",
+                blunders.get(), threshold, gamesWithBlunders.get());
+
+        List<Swing> sorted = new ArrayList<>(worst);
+        sorted.sort(null);
+        if (!sorted.isEmpty())
+            System.out.println("Largest evaluation swings:");
+        for (int i = sorted.size() - 1; i >= 0; i--)
+            System.out.println("  " + sorted.get(i));
+    }
+
+    /**
+     * A move that scored worse than the best move of the position, ordered by how much worse.
+     */
+    private static class Swing implements Comparable<Swing> {
+        final int game;
+        final int move;
+        final int player;
+        final int column;
+        final int bestColumn;
+        final int bestScore;
+        final int playedScore;
+
+        Swing(int game, int move, int player, int column, int bestColumn, int bestScore, int playedScore) {
+            this.game = game;
+            this.move = move;
+            this.player = player;
+            this.column = column;
+            this.bestColumn = bestColumn;
+            this.bestScore = bestScore;
+            this.playedScore = playedScore;
+        }
+
+        long loss() {
+            return (long) bestScore - playedScore;
+        }
+
+        @Override
+        public int compareTo(Swing other) {
+            return Long.compare(loss(), other.loss());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Game %d, move %d: player %d played column %d (%s), best was column %d (%s)",
+                    game, move + 1, player, column + 1, describe(playedScore), bestColumn + 1, describe(bestScore));
+        }
+
+        private static String describe(int score) {
+            if (score >= AI.WIN_SCORE)
+                return "wins";
+            if (score <= -AI.WIN_SCORE)
+                return "loses";
+            return String.valueOf(score);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path file = Paths.get(args.length > 0 ? args[0] : GameLog.DEFAULT_FILE);
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_DEPTH;
+        int threshold = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_THRESHOLD;
+
+        new GameAnalyzer(depth, threshold).analyze(file, Runtime.getRuntime().availableProcessors());
+    }
+}
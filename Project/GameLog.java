@@ -0,0 +1,207 @@
+package projects.connect4;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File of played games that new games are appended to, read back by {@link GameAnalyzer}. Every game is
+ * stored as its moves only, the positions are replayed from them, so a whole game takes at most 23 bytes
+ * on the standard board.
+ * <p>
+ * The file starts with the MAGIC number as an int, followed by one byte each for the rows, columns and connect
+ * of the board the games were played on. A log of another board can not be replayed and is not read or added to.
+ * After that the games follow each other without any index, so the file can only be read from the start, one
+ * game at a time. Every game is:
+ * 1 byte - The first player minus 1 in bit 0 and the result in bits 1-2, see {@link Record}.
+ * 1 byte - The number of moves.
+ * 1 byte for every two moves - The columns played, the first of the two in the low 4 bits.
+ */
+class GameLog {
+    static final int MAGIC = 0x43344C32; //"C4L2", the first logs had no board in the header
+
+    private static final int HEADER_SIZE = Integer.BYTES + 3;
+
+    //Games on other boards can not be read back on the standard board, so they are kept apart
+    static final String DEFAULT_FILE = AbstractBoard.isStandard() ? "connect4.games" : String.format(
+            "connect4-%dx%d-%d.games", AbstractBoard.ROWS, AbstractBoard.COLUMNS, AbstractBoard.CONNECT);
+
+    private static final int MAX_MOVES = AbstractBoard.ROWS * AbstractBoard.COLUMNS;
+
+    private GameLog() {
+    }
+
+    /**
+     * Appends a game to the log, creating the file if it does not exist. The file is locked while
+     * writing so that several games can be logged to the same file at the same time.
+     *
+     * @param file The log file.
+     * @param game The game to append.
+     * @throws IOException If the game could not be written, the file is not a game log or it is the log
+     *                     of another board.
+     */
+    static void append(Path file, Record game) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            //The lock is released when the channel is closed
+            channel.lock();
+
+            if (channel.size() == 0) {
+                channel.write(header());
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                channel.read(header, 0);
+                checkHeader(file, header.flip());
+            }
+
+            channel.write(game.encode(), channel.size());
+        }
+    }
+
+    /**
+     * Opens a log for reading the games one by one, without reading the whole file into memory.
+     *
+     * @param file The log file.
+     * @return A reader positioned at the first game.
+     * @throws IOException If the file can not be read, is not a game log or is the log of another board.
+     */
+    static Reader open(Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+
+        byte[] header = new byte[HEADER_SIZE];
+        try {
+            in.readFully(header);
+            checkHeader(file, ByteBuffer.wrap(header));
+        } catch (EOFException e) {
+            in.close();
+            throw new IOException(file + " is not a game log");
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new Reader(in);
+    }
+
+    /**
+     * @return The header of a log of games on the current board, ready to be written.
+     */
+    private static ByteBuffer header() {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC)
+                .put((byte) AbstractBoard.ROWS).put((byte) AbstractBoard.COLUMNS).put((byte) AbstractBoard.CONNECT)
+                .flip();
+    }
+
+    /**
+     * @param header The start of the file, HEADER_SIZE bytes unless the file is shorter.
+     * @throws IOException If the file is not a game log or it is the log of another board.
+     */
+    private static void checkHeader(Path file, ByteBuffer header) throws IOException {
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+            throw new IOException(file + " is not a game log");
+
+        int rows = header.get();
+        int columns = header.get();
+        int connect = header.get();
+        if (rows != AbstractBoard.ROWS || columns != AbstractBoard.COLUMNS || connect != AbstractBoard.CONNECT)
+            throw new IOException(String.format("%s has games of %d rows, %d columns and connect %d, not of %d rows, " +
+                            "%d columns and connect %d", file, rows, columns, connect,
+                    AbstractBoard.ROWS, AbstractBoard.COLUMNS, AbstractBoard.CONNECT));
+    }
+
+    /**
+     * Reads the games of a log in the order they were played.
+     */
+    static class Reader implements Closeable {
+        private final DataInputStream in;
+
+        private Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @return The next game, or null when there are no more games.
+         * @throws IOException If the file could not be read or ends in the middle of a game.
+         */
+        Record next() throws IOException {
+            int flags = in.read();
+            if (flags == -1)
+                return null;
+
+            int count = in.readUnsignedByte();
+            if (count > MAX_MOVES)
+                throw new IOException("Game with " + count + " moves, the log is corrupt");
+
+            int[] moves = new int[count];
+            for (int i = 0; i < count; i += 2) {
+                int pair = in.readUnsignedByte();
+                moves[i] = pair & 0xF;
+                if (i + 1 < count)
+                    moves[i + 1] = pair >>> 4;
+            }
+
+            return new Record((flags & 1) + 1, moves, (flags >>> 1) & 3);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * One game, the columns played from the empty board and how the game ended.
+     */
+    static class Record {
+        //The result of a game that was quit before it ended, otherwise it is the winner or DRAW
+        static final int UNFINISHED = 0;
+        static final int DRAW = 3;
+
+        final int firstPlayer;
+        final int[] moves;
+        final int result;
+
+        /**
+         * @param firstPlayer The player who made the first move.
+         * @param moves       The columns played, 0 to COLUMNS - 1.
+         * @param result      UNFINISHED, PLAYER_1 or PLAYER_2 for the winner, or DRAW.
+         */
+        Record(int firstPlayer, int[] moves, int result) {
+            if (!(firstPlayer == AbstractBoard.PLAYER_1 || firstPlayer == AbstractBoard.PLAYER_2))
+                throw new IllegalArgumentException("No such player " + firstPlayer);
+            if (moves.length > MAX_MOVES)
+                throw new IllegalArgumentException("A game can not have " + moves.length + " moves");
+            if (result < UNFINISHED || result > DRAW)
+                throw new IllegalArgumentException("No such result " + result);
+
+            this.firstPlayer = firstPlayer;
+            this.moves = moves;
+            this.result = result;
+        }
+
+        /**
+         * @param move The index of a move.
+         * @return The player who made the move.
+         */
+        int player(int move) {
+            boolean first = move % 2 == 0;
+            return first == (firstPlayer == AbstractBoard.PLAYER_1) ? AbstractBoard.PLAYER_1 : AbstractBoard.PLAYER_2;
+        }
+
+        private ByteBuffer encode() {
+            ByteBuffer buffer = ByteBuffer.allocate(2 + (moves.length + 1) / 2);
+            buffer.put((byte) ((firstPlayer - 1) | (result << 1)));
+            buffer.put((byte) moves.length);
+            for (int i = 0; i < moves.length; i += 2)
+                buffer.put((byte) (moves[i] | (i + 1 < moves.length ? moves[i + 1] << 4 : 0)));
+
+            return buffer.flip();
+        }
+    }
+}
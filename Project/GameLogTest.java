@@ -0,0 +1,93 @@
+package projects.connect4;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+/**
+ * Writes games with {@link GameLog#append} and checks that {@link GameLog.Reader} reads back the same games.
+ */
+public class GameLogTest {
+
+    @Test
+    public void testGamesReadBackAsAppended() throws IOException {
+        //Every column filled from the left, 42 moves on the standard board
+        int[] fullBoard = new int[Board.ROWS * Board.COLUMNS];
+        for (int i = 0; i < fullBoard.length; i++)
+            fullBoard[i] = i / Board.ROWS;
+
+        GameLog.Record[] games = {
+                new GameLog.Record(Board.PLAYER_1, new int[]{3, 3, 4, 4, 5, 5, 6}, Board.PLAYER_1),
+                new GameLog.Record(Board.PLAYER_2, new int[]{0, Board.COLUMNS - 1, 2, 3}, GameLog.Record.UNFINISHED),
+                new GameLog.Record(Board.PLAYER_1, fullBoard, GameLog.Record.DRAW),
+                new GameLog.Record(Board.PLAYER_2, new int[0], GameLog.Record.UNFINISHED),
+                new GameLog.Record(Board.PLAYER_2, new int[]{Board.COLUMNS - 1}, Board.PLAYER_2)
+        };
+
+        Path file = Files.createTempFile("connect4", ".games");
+        Files.delete(file);
+        try {
+            for (GameLog.Record game : games)
+                GameLog.append(file, game);
+
+            try (GameLog.Reader reader = GameLog.open(file)) {
+                for (GameLog.Record expected : games) {
+                    GameLog.Record actual = reader.next();
+                    assertEquals(expected.firstPlayer, actual.firstPlayer);
+                    assertEquals(expected.result, actual.result);
+                    assertArrayEquals(expected.moves, actual.moves);
+                }
+                assertNull(reader.next());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testLogOfAnotherBoardIsRejected() throws IOException {
+        Path file = Files.createTempFile("connect4", ".games");
+        try {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+                out.writeInt(GameLog.MAGIC);
+                out.writeByte(Board.ROWS + 1);
+                out.writeByte(Board.COLUMNS);
+                out.writeByte(Board.CONNECT);
+            }
+
+            try {
+                GameLog.open(file).close();
+                fail("Opened the log of another board");
+            } catch (IOException expected) {
+            }
+
+            try {
+                GameLog.append(file, new GameLog.Record(Board.PLAYER_1, new int[]{3}, GameLog.Record.UNFINISHED));
+                fail("Appended to the log of another board");
+            } catch (IOException expected) {
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFileThatIsNotALogIsRejected() throws IOException {
+        Path file = Files.createTempFile("connect4", ".games");
+        try {
+            Files.write(file, new byte[]{1, 2, 3});
+            try {
+                GameLog.open(file).close();
+                fail("Opened a file that is not a game log");
+            } catch (IOException expected) {
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package projects.connect4;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets many players play against the AI at the same time over the network. Every connection is one player,
+ * handled on a thread of its own that only waits for the player and for the AI. The searches of the AI are
+ * run on a fixed pool of compute threads, one per core by default, so any number of players can be connected
+ * without the searches competing for more cores than there are. All games search with the same transposition
+ * tables, one for each player, so positions searched in one game are reused in every other game that reaches
+ * them. The AI stores scores from its own view and its heuristic does not score a position for one player as
+ * the negation of the score for the other, so the AIs of the two players can not share one table.
+ * <p>
+ * Connections are handled on virtual threads when the JVM has them (Java 21 and later), otherwise on
+ * ordinary threads.
+ * <p>
+ * The protocol is line based, the client sends a command and the server answers with one line:
+ * NEW [FIRST|SECOND] - Starts a new game where the client moves first, or second. Answers READY when it is
+ * the client's move, or MOVE col when the AI moved first.
+ * PLAY col - Plays in column 1 to COLUMNS. Answers MOVE col with the AI's move, WIN if the client won the game,
+ * LOSS col if the AI won with its move, DRAW if the board is full, followed by the AI's column if it made the last move.
+ * QUIT - Answers BYE and closes the connection.
+ * A command that is not valid is answered with ERROR and a message, and the game continues as before.
+ * If the AI fails to find its move the game is ended and the command is answered with ERROR as well.
+ * <p>
+ * Usage: GameServer [port] [setting] [computeThreads]
+ * port - The port to listen on, 4444 by default.
+ * setting - dN to search to depth N or tN to think N milliseconds per move, d8 by default.
+ * computeThreads - How many searches can run at the same time, the number of cores by default.
+ */
+class GameServer {
+    static final int DEFAULT_PORT = 4444;
+
+    private static final int DEFAULT_DEPTH = 8;
+
+    //One table per player for every game, so they are larger than the table of a single AI
+    private static final int TABLE_SIZE_MB = 128;
+    private static final int SOLVER_TABLE_SIZE_MB = 4;
+
+    //The shared tables are aged after this many searches instead of before every search
+    private static final int AGE_INTERVAL = 1024;
+
+    //The depth every move is searched to, or 0 to search on time
+    private final int depth;
+    //Milliseconds the AI thinks on each move, or 0 to search to a fixed depth
+    private final int timeLimit;
+
+    private final TranspositionTable[] tables = {
+            new TranspositionTable(TABLE_SIZE_MB), new TranspositionTable(TABLE_SIZE_MB)};
+    private final OpeningBook book;
+
+    private final ExecutorService compute;
+    private final AtomicInteger searches = new AtomicInteger();
+
+    //The AIs are not thread safe so every compute thread gets its own, one for each player
+    private final ThreadLocal<AI[]> ais;
+
+    /**
+     * @param depth          The depth every move is searched to, or 0 to search on time.
+     * @param timeLimit      Milliseconds the AI thinks on each move, or 0 to search to a fixed depth.
+     * @param computeThreads How many searches can run at the same time.
+     */
+    GameServer(int depth, int timeLimit, int computeThreads) {
+        if ((depth > 0) == (timeLimit > 0))
+            throw new IllegalArgumentException("Needs either a depth or a time limit, was depth " + depth +
+                    " and time limit " + timeLimit);
+
+        this.depth = depth;
+        this.timeLimit = timeLimit;
+        book = loadOpeningBook();
+        compute = Executors.newFixedThreadPool(computeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "AI search");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        ais = ThreadLocal.withInitial(() -> new AI[]{createAI(Board.PLAYER_1), createAI(Board.PLAYER_2)});
+    }
+
+    private AI createAI(int player) {
+        int opponent = player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+        AI ai = new AI(player, opponent, depth, tables[player - 1], SOLVER_TABLE_SIZE_MB);
+        ai.timeLimit = timeLimit;
+        ai.book = book;
+        ai.verbose = false;
+        return ai;
+    }
+
+    private static OpeningBook loadOpeningBook() {
+        Path file = Paths.get(OpeningBook.DEFAULT_FILE);
+        if (!Files.exists(file))
+            return null;
+
+        try {
+            return OpeningBook.open(file);
+        } catch (IOException e) {
+            System.out.println("Could not open the opening book, playing without it. " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Accepts connections until the JVM is stopped.
+     *
+     * @param port The port to listen on.
+     * @throws IOException If the port could not be listened on.
+     */
+    void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port)) {
+            System.out.println("Playing " + (timeLimit > 0 ? timeLimit + " ms per move" : "to depth " + depth) +
+                    " on port " + port + ".");
+            serve(server);
+        }
+    }
+
+    /**
+     * Accepts connections on the given socket until it is closed.
+     *
+     * @throws IOException If a connection could not be accepted, or the socket was closed.
+     */
+    void serve(ServerSocket server) throws IOException {
+        ExecutorService connections = newConnectionExecutor();
+        try {
+            while (true) {
+                Socket socket = server.accept();
+                connections.execute(() -> handle(socket));
+            }
+        } finally {
+            connections.shutdown();
+        }
+    }
+
+    /**
+     * @return An executor that runs every task on a new virtual thread, or on a new ordinary thread
+     * on JVMs older than Java 21 that do not have virtual threads.
+     */
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket connection = socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(
+                     new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8), true)) {
+
+            Session session = new Session();
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                String answer;
+                try {
+                    answer = session.handle(line.trim());
+                } catch (IllegalStateException e) {
+                    //Only the client's move may have been played, so the game can not go on
+                    e.printStackTrace();
+                    session.board = null;
+                    answer = "ERROR The AI could not find a move, start a new game with NEW";
+                }
+
+                out.println(answer);
+                if (answer.equals("BYE"))
+                    return;
+            }
+        } catch (IOException e) {
+            //The player disconnected, there is nothing to clean up
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Searches the position with an AI of the compute thread it is run on and waits for the move.
+     *
+     * @throws IllegalStateException If the search failed or could not be started.
+     */
+    private int findMove(BitBoard board, int player) throws InterruptedException {
+        if (searches.incrementAndGet() % AGE_INTERVAL == 0)
+            for (TranspositionTable table : tables)
+                table.newSearch();
+
+        try {
+            Future<Integer> move = compute.submit(() -> ais.get()[player - 1].findBestMoveMinMax(board));
+            return move.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Search could not be started", e);
+        }
+    }
+
+    /**
+     * Stops the compute threads, searches that have not started yet are not run.
+     */
+    void shutdown() {
+        compute.shutdownNow();
+    }
+
+    /**
+     * The game of one connection.
+     */
+    private class Session {
+        private BitBoard board;
+        private int client;
+        private int ai;
+
+        String handle(String line) throws InterruptedException {
+            String[] command = line.split("\\s+");
+
+            switch (command[0].toUpperCase()) {
+                case "NEW":
+                    return newGame(command.length > 1 ? command[1].toUpperCase() : "FIRST");
+                case "PLAY":
+                    if (command.length < 2)
+                        return "ERROR PLAY needs a column";
+                    return play(command[1]);
+                case "QUIT":
+                    return "BYE";
+                default:
+                    return "ERROR Unknown command " + command[0];
+            }
+        }
+
+        private String newGame(String order) throws InterruptedException {
+            if (!(order.equals("FIRST") || order.equals("SECOND")))
+                return "ERROR Expected FIRST or SECOND but was " + order;
+
+            board = new BitBoard();
+            client = order.equals("FIRST") ? Board.PLAYER_1 : Board.PLAYER_2;
+            ai = client == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+
+            if (client == Board.PLAYER_1)
+                return "READY";
+
+            int col = findMove(board, ai);
+            board.play(col, ai);
+            return "MOVE " + (col + 1);
+        }
+
+        private String play(String column) throws InterruptedException {
+            if (board == null)
+                return "ERROR No game, start one with NEW";
+
+            int col;
+            try {
+                col = Integer.parseInt(column) - 1;
+            } catch (NumberFormatException e) {
+                return "ERROR Not a column " + column;
+            }
+            if (col < 0 || col >= Board.COLUMNS || board.getNextRow(col) == Board.COLUMN_IS_FULL)
+                return "ERROR Column " + column + " can not be played";
+
+            board.play(col, client);
+            if (board.isWonByLastMove(col)) {
+                board = null;
+                return "WIN";
+            }
+            if (board.isFull()) {
+                board = null;
+                return "DRAW";
+            }
+
+            int move = findMove(board, ai);
+            board.play(move, ai);
+            if (board.isWonByLastMove(move)) {
+                board = null;
+                return "LOSS " + (move + 1);
+            }
+            if (board.isFull()) {
+                board = null;
+                return "DRAW " + (move + 1);
+            }
+            return "MOVE " + (move + 1);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int computeThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        int depth = DEFAULT_DEPTH;
+        int timeLimit = 0;
+        if (args.length > 1) {
+            String setting = args[1];
+            int value = Integer.parseInt(setting.substring(1));
+            switch (setting.charAt(0)) {
+                case 'd':
+                    depth = value;
+                    break;
+                case 't':
+                    depth = 0;
+                    timeLimit = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Expected dN or tN but was " + setting);
+            }
+        }
+
+        new GameServer(depth, timeLimit, computeThreads).serve(port);
+    }
+}
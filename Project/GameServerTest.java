@@ -0,0 +1,143 @@
+package projects.connect4;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Plays two games on one {@link GameServer} at the same time, where the server is player 2 in one game and
+ * player 1 in the other, so that the AIs of both players search with the tables of the server.
+ */
+public class GameServerTest {
+    //Below the depth of the opening book, so every move is searched
+    private static final int DEPTH = 3;
+
+    /**
+     * Every move of the server must be one of the best moves a search of the position to the same depth finds,
+     * as an AI with a table of its own would play. The clients search as deep as the server, so both games are
+     * the same game. The game where the server moves first is kept one move ahead, so the AI of each player
+     * searches positions the AI of the other player has just stored, from one move further into the game.
+     */
+    @Test
+    public void testAIsOfBothPlayersShareServer() throws IOException, InterruptedException {
+        GameServer server = new GameServer(DEPTH, 0, 1);
+        try (ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            Thread serving = new Thread(() -> {
+                try {
+                    server.serve(socket);
+                } catch (IOException e) {
+                    //The socket was closed at the end of the test
+                }
+            });
+            serving.setDaemon(true);
+            serving.start();
+
+            try (Client first = new Client(socket.getLocalPort(), Board.PLAYER_1);
+                 Client second = new Client(socket.getLocalPort(), Board.PLAYER_2)) {
+                second.start();
+                second.play();
+                first.start();
+                while (first.playing || second.playing) {
+                    first.play();
+                    second.play();
+                }
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * One game against the server, the client picks its moves with an AI of its own.
+     */
+    private static class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+
+        private final int player;
+        private final int server;
+        private final AI ai;
+        private final BitBoard board = new BitBoard();
+        private boolean playing = true;
+
+        Client(int port, int player) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+
+            this.player = player;
+            server = player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+            ai = new AI(player, server, DEPTH);
+            ai.verbose = false;
+        }
+
+        void start() throws IOException {
+            String answer = send(player == Board.PLAYER_1 ? "NEW FIRST" : "NEW SECOND");
+            if (player == Board.PLAYER_1)
+                assertEquals("READY", answer);
+            else
+                checkServerMove(answer);
+        }
+
+        void play() throws IOException {
+            if (!playing)
+                return;
+
+            int col = ai.findBestMoveMinMax(board);
+            board.play(col, player);
+            String answer = send("PLAY " + (col + 1));
+
+            if (answer.equals("WIN") || answer.equals("DRAW")) {
+                assertTrue(board.isWonByLastMove(col) || board.isFull());
+                playing = false;
+            } else {
+                checkServerMove(answer);
+            }
+        }
+
+        /**
+         * Checks that the move in the answer scores as well as the best move, plays it and checks how the game went.
+         */
+        private void checkServerMove(String answer) {
+            String[] words = answer.split(" ");
+            assertTrue(answer, words.length == 2 &&
+                    (words[0].equals("MOVE") || words[0].equals("LOSS") || words[0].equals("DRAW")));
+            int col = Integer.parseInt(words[1]) - 1;
+
+            AI reference = new AI(server, player, DEPTH);
+            reference.verbose = false;
+            //Near the end the server plays the move of the solver, which need not be the best at the search depth
+            if (Board.ROWS * Board.COLUMNS - board.getMoveCount() >= reference.solverThreshold)
+                assertEquals(reference.analyze(board, -1).score, reference.analyze(board, col).score);
+
+            board.play(col, server);
+            playing = words[0].equals("MOVE");
+            assertEquals(words[0].equals("LOSS"), board.isWonByLastMove(col));
+            assertEquals(words[0].equals("DRAW"), board.isFull());
+        }
+
+        private String send(String command) throws IOException {
+            out.println(command);
+            String answer = in.readLine();
+            assertTrue(command, answer != null && !answer.startsWith("ERROR"));
+            return answer;
+        }
+
+        @Override
+        public void close() throws IOException {
+            send("QUIT");
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package projects.connect4;
+
+/**
+ * The heuristics the AI can use to score a position that is not won, lost or tied.
+ * CLASSIC - evaluateBoard, scans every tile of the board for patterns of two and three in a row.
+ * WINDOWS - evaluateWindows, an incrementally updated score over every possible four in a row.
+ * <p>
+ * The scores of heuristics that are slow to compute are kept in an {@link EvaluationCache} by the AI.
+ */
+enum Heuristic {
+    CLASSIC(true) {
+        @Override
+        int evaluate(BitBoard board, int piece) {
+            return board.evaluateBoard(piece);
+        }
+    },
+    WINDOWS(false) {
+        @Override
+        int evaluate(BitBoard board, int piece) {
+            return board.evaluateWindows(piece);
+        }
+    };
+
+    //True if computing the score costs more than looking it up in the cache
+    final boolean cached;
+
+    Heuristic(boolean cached) {
+        this.cached = cached;
+    }
+
+    /**
+     * @param board The board to evaluate.
+     * @param piece The player to evaluate the board for.
+     * @return The heuristic score of the board for the given player.
+     */
+    abstract int evaluate(BitBoard board, int piece);
+}
@@ -0,0 +1,48 @@
+package projects.connect4;
+
+import java.util.Arrays;
+
+/**
+ * Collects how long a number of operations took, for example every move made by an AI, and reports
+ * percentiles of them. Several threads can record at the same time.
+ */
+class Latencies {
+    private long[] nanos = new long[1024];
+    private int size;
+
+    /**
+     * @param elapsedNanos How long an operation took, in nanoseconds.
+     */
+    synchronized void record(long elapsedNanos) {
+        if (size == nanos.length)
+            nanos = Arrays.copyOf(nanos, size * 2);
+        nanos[size++] = elapsedNanos;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param percent The percentile to get, between 0 and 100.
+     * @return The latency in nanoseconds that the given percent of the operations were faster than or equal to.
+     */
+    synchronized long percentile(double percent) {
+        if (size == 0)
+            return 0;
+
+        long[] sorted = Arrays.copyOf(nanos, size);
+        Arrays.sort(sorted);
+
+        int index = (int) Math.ceil(percent / 100 * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, index))];
+    }
+
+    /**
+     * @return The 50th, 90th, 99th percentile and the maximum latency in milliseconds.
+     */
+    String summary() {
+        return String.format("p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms",
+                percentile(50) / 1e6, percentile(90) / 1e6, percentile(99) / 1e6, percentile(100) / 1e6);
+    }
+}
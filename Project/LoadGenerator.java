@@ -0,0 +1,157 @@
+package projects.connect4;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how many moves a {@link GameServer} can answer per second by connecting many players at the same time.
+ * Every player plays random moves and starts every other game, and the time from sending a move until the
+ * AI's answer is received is recorded for every move.
+ * <p>
+ * Usage: LoadGenerator [connections] [games] [host] [port]
+ * connections - How many players are connected at the same time, 16 by default.
+ * games - How many games every player plays, 10 by default.
+ * host, port - Where the server is, localhost and 4444 by default.
+ */
+class LoadGenerator {
+    private final String host;
+    private final int port;
+
+    private final AtomicInteger games = new AtomicInteger();
+    private final AtomicInteger wins = new AtomicInteger();
+    private final AtomicInteger losses = new AtomicInteger();
+    private final AtomicLong moves = new AtomicLong();
+    private final Latencies latencies = new Latencies();
+
+    LoadGenerator(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Plays the games on the given number of connections and prints the results when all are done.
+     */
+    void run(int connections, int gamesPerConnection) throws InterruptedException {
+        ExecutorService pool = GameServer.newConnectionExecutor();
+        long start = System.currentTimeMillis();
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < connections; i++)
+            results.add(pool.submit(() -> {
+                play(gamesPerConnection);
+                return null;
+            }));
+
+        try {
+            for (Future<?> result : results)
+                result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Player failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        long millis = System.currentTimeMillis() - start;
+        System.out.printf("%d games, %d moves on %d connections in %.1f seconds, %.0f moves per second.%n",
+                games.get(), moves.get(), connections, millis / 1000.0, moves.get() * 1000.0 / Math.max(1, millis));
+        System.out.printf("The players won %d, lost %d and drew %d.%n",
+                wins.get(), losses.get(), games.get() - wins.get() - losses.get());
+        System.out.println("Answer times " + latencies.summary());
+    }
+
+    private void play(int count) throws IOException {
+        Random rand = new Random();
+
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+
+            for (int game = 0; game < count; game++) {
+                boolean first = game % 2 == 0;
+                int player = first ? Board.PLAYER_1 : Board.PLAYER_2;
+                int server = first ? Board.PLAYER_2 : Board.PLAYER_1;
+                BitBoard board = new BitBoard();
+
+                String answer = send(in, out, first ? "NEW FIRST" : "NEW SECOND");
+                if (!first)
+                    board.play(column(answer), server);
+
+                while (true) {
+                    int col = randomColumn(rand, board.getPlayableColumns());
+                    board.play(col, player);
+
+                    long sent = System.nanoTime();
+                    answer = send(in, out, "PLAY " + (col + 1));
+                    latencies.record(System.nanoTime() - sent);
+                    moves.incrementAndGet();
+
+                    if (answer.equals("WIN")) {
+                        wins.incrementAndGet();
+                        break;
+                    }
+                    if (answer.equals("DRAW"))
+                        break;
+
+                    board.play(column(answer), server);
+                    if (answer.startsWith("LOSS")) {
+                        losses.incrementAndGet();
+                        break;
+                    }
+                    if (answer.startsWith("DRAW"))
+                        break;
+                }
+                games.incrementAndGet();
+            }
+
+            send(in, out, "QUIT");
+        }
+    }
+
+    private static String send(BufferedReader in, PrintWriter out, String command) throws IOException {
+        out.println(command);
+        String answer = in.readLine();
+        if (answer == null)
+            throw new IOException("The server closed the connection");
+        if (answer.startsWith("ERROR"))
+            throw new IOException(command + " was answered with " + answer);
+        return answer;
+    }
+
+    /**
+     * @return The column of an answer ending with a column 1 to COLUMNS, from 0.
+     */
+    private static int column(String answer) {
+        return Integer.parseInt(answer.substring(answer.lastIndexOf(' ') + 1)) - 1;
+    }
+
+    private static int randomColumn(Random rand, int columns) {
+        int skip = rand.nextInt(Integer.bitCount(columns));
+        for (int i = 0; i < skip; i++)
+            columns &= columns - 1;
+        return Integer.numberOfTrailingZeros(columns);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String host = args.length > 2 ? args[2] : "localhost";
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : GameServer.DEFAULT_PORT;
+
+        new LoadGenerator(host, port).run(connections, games);
+    }
+}
@@ -0,0 +1,372 @@
+package projects.connect4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Alternative to the minmax {@link AI} that uses Monte Carlo Tree Search instead of a heuristic. Rather than
+ * scoring positions with evaluateBoard, it plays the position out to the end with random moves a large number
+ * of times and plays the move that did best.
+ * <p>
+ * The random games are not spread evenly over the moves. A tree of the positions played so far is grown one node
+ * per game, and every game walks down the tree choosing the child with the best UCT value, the ratio of games won
+ * plus a bonus for children that have been tried few times. Good moves are played out more and more often while
+ * every move still gets tried now and then. When a node is reached that still has untried moves, one of them is
+ * added to the tree and the game is played out randomly from there.
+ * <p>
+ * The tree is kept between moves. When the AI is asked for its next move the node of the new position is looked
+ * up among the grandchildren of the old root and the games already played below it are used as they are.
+ * <p>
+ * With more than one thread every thread grows a tree of its own and the games of all trees are added together
+ * when choosing the move, known as root parallelism. The trees share nothing so the threads never wait for
+ * each other.
+ */
+class MonteCarloAI implements Engine {
+    private static final int DEFAULT_TIME_LIMIT = 1000;
+
+    //Weight of the exploration bonus in UCT, the theoretical value is the square root of 2
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    //Every tree stops growing at this many nodes, the games are still played out from its leaves
+    private static final int MAX_NODES_PER_TREE = 1 << 21;
+
+    //How many games are played between each look at the clock
+    private static final int TIME_CHECK_INTERVAL = 64;
+
+    private final int AI;
+    private final int OPPONENT;
+
+    //Milliseconds the AI thinks on each move
+    int timeLimit;
+
+    //Prints how many games were played after every move
+    boolean verbose = true;
+
+    private long playouts;
+
+    private ExecutorService pool;
+    private Searcher[] searchers = {new Searcher()};
+
+    MonteCarloAI(int value, int opponentValue) {
+        this(value, opponentValue, DEFAULT_TIME_LIMIT);
+    }
+
+    /**
+     * @param value         The piece the AI plays with.
+     * @param opponentValue The piece the opponent plays with.
+     * @param timeLimit     Milliseconds the AI thinks on each move.
+     */
+    MonteCarloAI(int value, int opponentValue, int timeLimit) {
+        AI = value;
+        OPPONENT = opponentValue;
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Sets how many threads the AI uses when searching, every thread grows a tree of its own.
+     * Changing the number of threads throws away the trees kept from earlier moves.
+     *
+     * @param threads The number of threads to search with, 1 searches on the calling thread only.
+     */
+    void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Needs at least 1 thread, was " + threads);
+
+        if (pool != null)
+            pool.shutdown();
+
+        searchers = new Searcher[threads];
+        for (int i = 0; i < threads; i++)
+            searchers[i] = new Searcher();
+
+        pool = threads == 1 ? null : Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Monte Carlo search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Plays random games from the given board until the time limit is reached and returns the
+     * column that was tried the most, summed over the trees of all threads. The most tried move
+     * is more reliable than the move with the best ratio, which may have been tried only a few times.
+     *
+     * @param board The board with the current game state.
+     * @return The best column to play on.
+     */
+    @Override
+    public int findBestMove(AbstractBoard board) {
+        BitBoard position = new BitBoard(board);
+        long start = System.nanoTime();
+        long deadline = start + timeLimit * 1_000_000L;
+
+        for (Searcher searcher : searchers)
+            searcher.setRoot(position);
+
+        if (pool == null) {
+            searchers[0].search(deadline);
+        } else {
+            List<Future<?>> results = new ArrayList<>();
+            for (Searcher searcher : searchers)
+                results.add(pool.submit(() -> searcher.search(deadline)));
+
+            try {
+                for (Future<?> result : results)
+                    result.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("Monte Carlo search failed", e);
+            }
+        }
+
+        long[] visits = new long[Board.COLUMNS];
+        playouts = 0;
+        for (Searcher searcher : searchers) {
+            playouts += searcher.playouts;
+            for (Node child : searcher.root.children)
+                if (child != null)
+                    visits[child.column] += child.visits;
+        }
+
+        int playable = position.getPlayableColumns();
+        int best = -1;
+        for (int col : Board.CENTER_FIRST)
+            if ((playable & (1 << col)) != 0 && (best == -1 || visits[col] > visits[best]))
+                best = col;
+
+        if (verbose) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Monte Carlo played %d games in %.2f seconds, %.0f games per second per thread.%n",
+                    playouts, seconds, playouts / seconds / searchers.length);
+        }
+
+        return best;
+    }
+
+    /**
+     * @return The number of random games played on the last move, by all threads together.
+     */
+    @Override
+    public long getNodeCount() {
+        return playouts;
+    }
+
+    /**
+     * Looks up how many games the tree of the first thread has played through a position.
+     *
+     * @param columns The columns played from the root of the tree to reach the position, none for the root.
+     * @return The games played through the position, 0 if it is not in the tree.
+     */
+    int getVisits(int... columns) {
+        Node node = searchers[0].root;
+        for (int col : columns) {
+            if (node == null)
+                break;
+            node = node.children[col];
+        }
+        return node == null ? 0 : node.visits;
+    }
+
+    /**
+     * A position in the tree, reached by the given player playing in the given column.
+     */
+    private static class Node {
+        //Game is not over, otherwise the winner or EMPTY for a draw
+        static final int NOT_OVER = -1;
+
+        final int column;
+        final int player;
+        int winner = NOT_OVER;
+
+        //Bit for every playable column that does not have a child yet
+        int untried;
+        Node[] children = new Node[Board.COLUMNS];
+
+        int visits;
+        //Games won by player counting draws as half, so that wins / visits is the ratio for player
+        double wins;
+
+        Node(int column, int player) {
+            this.column = column;
+            this.player = player;
+        }
+
+        /**
+         * The UCT value of the child, seen from the player to move in this node.
+         */
+        double uct(Node child, double logVisits) {
+            return child.wins / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+        }
+    }
+
+    /**
+     * The tree and board of one thread.
+     */
+    private class Searcher {
+        private final Random rand = new Random();
+
+        private BitBoard board;
+        private Node root;
+        private int nodes;
+        private long playouts;
+
+        //The nodes walked in the current game, root first, and the random columns played after them
+        private final Node[] path = new Node[Board.ROWS * Board.COLUMNS + 1];
+        private final int[] randomMoves = new int[Board.ROWS * Board.COLUMNS];
+
+        /**
+         * Moves the root to the given position, keeping the part of the tree below it if the position
+         * follows from the old root by one move from each player.
+         */
+        void setRoot(BitBoard position) {
+            Node reused = root == null ? null : findGrandchild(position.getKey(Board.PLAYER_1));
+
+            board = position.getCopy();
+            playouts = 0;
+            if (reused != null) {
+                root = reused;
+                //One node is added per game, so the games played below the root are an upper bound of its size
+                nodes = root.visits + 1;
+            } else {
+                root = new Node(-1, OPPONENT);
+                root.untried = board.getPlayableColumns();
+                nodes = 1;
+            }
+        }
+
+        private Node findGrandchild(long key) {
+            for (Node child : root.children) {
+                if (child == null)
+                    continue;
+
+                board.play(child.column, child.player);
+                for (Node grandchild : child.children) {
+                    if (grandchild == null)
+                        continue;
+
+                    board.play(grandchild.column, grandchild.player);
+                    boolean found = board.getKey(Board.PLAYER_1) == key;
+                    board.undo(grandchild.column);
+
+                    if (found) {
+                        board.undo(child.column);
+                        return grandchild;
+                    }
+                }
+                board.undo(child.column);
+            }
+            return null;
+        }
+
+        void search(long deadline) {
+            do {
+                for (int i = 0; i < TIME_CHECK_INTERVAL; i++)
+                    playout();
+            } while (System.nanoTime() < deadline);
+        }
+
+        /**
+         * Plays one game: walks down the tree, adds a node, plays randomly to the end
+         * and adds the result to every node on the way. The board is left as it was.
+         */
+        private void playout() {
+            Node node = root;
+            int depth = 0;
+            path[depth++] = node;
+
+            //Selection, follow the best child while every move of the node has been tried
+            while (node.winner == Node.NOT_OVER && node.untried == 0) {
+                double logVisits = Math.log(node.visits);
+                Node best = null;
+                double bestValue = Double.NEGATIVE_INFINITY;
+                for (Node child : node.children) {
+                    if (child == null)
+                        continue;
+                    double value = node.uct(child, logVisits);
+                    if (value > bestValue) {
+                        bestValue = value;
+                        best = child;
+                    }
+                }
+
+                node = best;
+                board.play(node.column, node.player);
+                path[depth++] = node;
+            }
+
+            //Expansion, add one of the untried moves to the tree
+            if (node.winner == Node.NOT_OVER && nodes < MAX_NODES_PER_TREE) {
+                int col = randomColumn(node.untried);
+                int player = node.player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+
+                Node child = new Node(col, player);
+                if (board.isWinningMove(col, player))
+                    child.winner = player;
+
+                board.play(col, player);
+                if (child.winner == Node.NOT_OVER)
+                    if (board.isFull())
+                        child.winner = Board.EMPTY;
+                    else
+                        child.untried = board.getPlayableColumns();
+
+                node.untried &= ~(1 << col);
+                node.children[col] = child;
+                nodes++;
+
+                node = child;
+                path[depth++] = node;
+            }
+
+            //Simulation, random moves until the game is over
+            int winner = node.winner;
+            int player = node.player;
+            int moves = 0;
+            while (winner == Node.NOT_OVER) {
+                player = player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+                int col = randomColumn(board.getPlayableColumns());
+
+                if (board.isWinningMove(col, player))
+                    winner = player;
+                board.play(col, player);
+                randomMoves[moves++] = col;
+
+                if (winner == Node.NOT_OVER && board.isFull())
+                    winner = Board.EMPTY;
+            }
+
+            while (moves > 0)
+                board.undo(randomMoves[--moves]);
+
+            //Backpropagation, undo the moves of the tree and count the result in every node on the path
+            for (int i = depth - 1; i >= 0; i--) {
+                Node visited = path[i];
+                visited.visits++;
+                if (visited.player == winner)
+                    visited.wins += 1;
+                else if (winner == Board.EMPTY)
+                    visited.wins += 0.5;
+
+                if (i > 0)
+                    board.undo(visited.column);
+            }
+
+            playouts++;
+        }
+
+        /**
+         * @param columns Bit for every column to choose from, at least one must be set.
+         * @return One of the columns, chosen at random.
+         */
+        private int randomColumn(int columns) {
+            int skip = rand.nextInt(Integer.bitCount(columns));
+            for (int i = 0; i < skip; i++)
+                columns &= columns - 1;
+            return Integer.numberOfTrailingZeros(columns);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package projects.connect4;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Checks that the {@link MonteCarloAI} finds the obvious moves and keeps its tree between moves. Positions are
+ * written as the columns played from the empty board, 1 to COLUMNS, with player 1 starting, or built for any
+ * size of board.
+ */
+public class MonteCarloAITest {
+    private static final int TIME_LIMIT = 200;
+
+    @Test
+    public void testFindsImmediateWin() {
+        //Player 1 has CONNECT - 1 in the first column, player 2 in the second
+        BitBoard board = new BitBoard();
+        for (int i = 0; i < Board.CONNECT - 1; i++) {
+            board.play(0, Board.PLAYER_1);
+            board.play(1, Board.PLAYER_2);
+        }
+
+        MonteCarloAI sut = createAI(Board.PLAYER_1, TIME_LIMIT);
+        assertEquals(0, sut.findBestMove(board));
+    }
+
+    @Test
+    public void testBlocksImmediateLoss() {
+        //Player 1 has CONNECT - 1 in a row at the bottom from the left edge, only the next column finishes it
+        BitBoard board = new BitBoard();
+        for (int col = 0; col < Board.CONNECT - 1; col++) {
+            board.play(col, Board.PLAYER_1);
+            if (col < Board.CONNECT - 2)
+                board.play(Board.COLUMNS - 1, Board.PLAYER_2);
+        }
+
+        MonteCarloAI sut = createAI(Board.PLAYER_2, TIME_LIMIT);
+        assertEquals(Board.CONNECT - 1, sut.findBestMove(board));
+    }
+
+    /**
+     * After the opponent has replied the root moves to the grandchild of the two moves played, with the games
+     * already played through it. Without a time limit the next move only plays one batch of games, so the root
+     * has exactly the games of the grandchild plus the games of that move.
+     */
+    @Test
+    public void testTreeIsReusedAfterOpponentsMove() {
+        MonteCarloAI sut = createAI(Board.PLAYER_1, TIME_LIMIT);
+        BitBoard board = board("44");
+
+        int col = sut.findBestMove(board);
+        int reply = mostVisitedReply(sut, col);
+        int visits = sut.getVisits(col, reply);
+        assertTrue(visits > 0);
+
+        board.play(col, Board.PLAYER_1);
+        board.play(reply, Board.PLAYER_2);
+        sut.timeLimit = 0;
+        sut.findBestMove(board);
+
+        assertEquals(visits + sut.getNodeCount(), sut.getVisits());
+    }
+
+    @Test
+    public void testTreeIsNotReusedForUnknownPosition() {
+        MonteCarloAI sut = createAI(Board.PLAYER_1, TIME_LIMIT);
+        sut.findBestMove(board(""));
+
+        //Three moves on from the root, which can not be a grandchild of it
+        sut.timeLimit = 0;
+        sut.findBestMove(board("444"));
+
+        assertEquals(sut.getNodeCount(), sut.getVisits());
+    }
+
+    private static int mostVisitedReply(MonteCarloAI ai, int col) {
+        int best = 0;
+        for (int reply = 1; reply < Board.COLUMNS; reply++)
+            if (ai.getVisits(col, reply) > ai.getVisits(col, best))
+                best = reply;
+        return best;
+    }
+
+    private static MonteCarloAI createAI(int player, int timeLimit) {
+        MonteCarloAI ai = new MonteCarloAI(player, player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1, timeLimit);
+        ai.verbose = false;
+        return ai;
+    }
+
+    private static BitBoard board(String moves) {
+        BitBoard board = new BitBoard();
+        int player = Board.PLAYER_1;
+        for (char move : moves.toCharArray()) {
+            board.play(move - '1', player);
+            player = player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+        }
+        return board;
+    }
+}
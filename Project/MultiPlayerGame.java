@@ -3,12 +3,8 @@ package projects.connect4;
 import java.util.Scanner;
 
 class MultiPlayerGame extends Game {
-    private static final int ROWS = 6;
-    private static final int COLUMNS = 7;
-
-    private static final int PLAYER_1 = 1;
-    private static final int PLAYER_2 = 2;
-    private static final int EMPTY = 0;
+    private static final int PLAYER_1 = Board.PLAYER_1;
+    private static final int PLAYER_2 = Board.PLAYER_2;
 
     private static final String DEFAULT_P1 = "#";
     private static final String DEFAULT_P2 = "X";
@@ -16,10 +12,12 @@ class MultiPlayerGame extends Game {
     private String p2Symbol;
     private boolean finished = false;
     private int winner;
+    private int result = GameLog.Record.UNFINISHED;
 
 
     private int currentPlayer = PLAYER_1;
-    private int[][] board = new int[ROWS][COLUMNS];
+    private int lastColumn;
+    private Board board = new Board();
 
     private Scanner scan = new Scanner(System.in);
 
@@ -32,27 +30,20 @@ class MultiPlayerGame extends Game {
 
         do {
             String in = scan.nextLine();
+            int col = parseColumn(in);
 
-            switch (in) {
-                case "1":
-                case "2":
-                case "3":
-                case "4":
-                case "5":
-                case "6":
-                case "7":
-                    handleTileCommand(Integer.valueOf(in));
-                    break;
-                case "exit":
-                    finished = true;
-                    System.out.println("Current game quit, going back to main menu.");
-                    break;
-                default:
-                    System.out.println("What");
+            if (col != -1) {
+                handleTileCommand(col + 1);
+            } else if (in.equals("exit")) {
+                finished = true;
+                System.out.println("Current game quit, going back to main menu.");
+            } else {
+                System.out.println("What");
             }
 
         } while (!finished);
 
+        saveGame(PLAYER_1, result);
     }
 
     private void handleTileCommand(int col) {
@@ -68,6 +59,7 @@ class MultiPlayerGame extends Game {
 
         if (doWeHaveAWinner()) {
             finished = true;
+            result = winner;
             System.out.println(winnerText());
             return;
         }
@@ -75,6 +67,7 @@ class MultiPlayerGame extends Game {
         if (checkForTie()) {
             System.out.println("There are no more valid moves! And nobody won, what a shame....\n");
             finished = true;
+            result = GameLog.Record.DRAW;
             return;
         }
 
@@ -83,93 +76,32 @@ class MultiPlayerGame extends Game {
 
     private boolean placeTile(int col) {
         int x = col - 1;
-        boolean valid = true;
-
-        for (int y = ROWS - 1; y >= 0; y--) {
-            if (board[y][x] != EMPTY) {
-                valid = false;
-            } else {
-                board[y][x] = currentPlayer;
-                valid = true;
-                break;
-            }
-        }
+        int y = board.getNextRow(x);
 
-        if (!valid)
+        if (y == Board.COLUMN_IS_FULL)
             return false;
 
+        board.addTile(y, x, currentPlayer);
+        lastColumn = x;
+        recordMove(x);
+
         currentPlayer = (currentPlayer == PLAYER_1) ? PLAYER_2 : PLAYER_1;
         return true;
     }
 
     private boolean checkForTie() {
-        boolean tie = true;
-        for (int y = 0; y < ROWS; y++)
-            for (int x = 0; x < COLUMNS; x++)
-                if (board[y][x] == 0)
-                    tie = false;
-
-        return tie;
+        return board.isFull();
     }
 
-    /* Evaluate board, set finish to what ever is evaluated and
-     * set winner to currentPlayer (if finished is set to true)
+    /* Only the tile just placed can complete four in a row, so only the lines through it are checked.
+     * Sets winner to the player who placed it, currentPlayer has already moved on to the next player.
      */
     private boolean doWeHaveAWinner() {
-        //Evaluate 4 things
-        //Horizontal
-        //Vertical
-        //Diagonal bottom up
-        //Diagonal top down
-
-        //Checks horizontal
-        for (int y = 0; y < ROWS; y++)
-            for (int x = 0; x < COLUMNS; x++)
-                if (piece(y, x) != 0 && piece(y, x) == piece(y, x + 1) &&
-                        piece(y, x) == piece(y, x + 2) && piece(y, x) == piece(y, x + 3)) {
-                    //The piece being evaluated == the winner
-                    winner = piece(y, x);
-                    return true;
-                }
-
-        //Checks vertical
-        for (int y = 0; y < ROWS; y++)
-            for (int x = 0; x < COLUMNS; x++)
-                if (piece(y, x) != 0 && piece(y, x) == piece(y + 1, x) &&
-                        piece(y, x) == piece(y + 2, x) && piece(y, x) == piece(y + 3, x)) {
-
-                    winner = piece(y, x);
-                    return true;
-                }
-
-        //Checks diagonal bottom up
-        for (int y = 0; y < ROWS; y++)
-            for (int x = 0; x < COLUMNS; x++)
-                if (piece(y, x) != 0 && piece(y, x) == piece(y + 1, x - 1) &&
-                        piece(y, x) == piece(y + 2, x - 2) && piece(y, x) == piece(y + 3, x - 3)) {
-
-                    winner = piece(y, x);
-                    return true;
-                }
-
-        //Checks diagonal top down
-        for (int y = 0; y < ROWS; y++)
-            for (int x = 0; x < COLUMNS; x++)
-                if (piece(y, x) != 0 && piece(y, x) == piece(y + 1, x + 1) &&
-                        piece(y, x) == piece(y + 2, x + 2) && piece(y, x) == piece(y + 3, x + 3)) {
-
-                    winner = piece(y, x);
-                    return true;
-                }
-
-        return false;
-    }
+        if (!board.isWonByLastMove(lastColumn))
+            return false;
 
-    /* Helps with piece evaluation. With this method we don't have to worry about
-     * going out of bounds in the evaluations in doWeHaveAWinner()
-     */
-    private int piece(int y, int x) {
-        return (x >= COLUMNS || y >= ROWS || x < 0 || y < 0) ? 0 : board[y][x];
+        winner = (currentPlayer == PLAYER_1) ? PLAYER_2 : PLAYER_1;
+        return true;
     }
 
     private void chooseSymbol() {
@@ -198,18 +130,6 @@ class MultiPlayerGame extends Game {
     }
 
     private void printBoard() {
-        for (int i = 0; i < ROWS; i++) {
-            for (int j = 0; j < COLUMNS; j++) {
-                int tile = board[i][j];
-                String toPrint = "0";
-
-                if (tile != EMPTY)
-                    toPrint = (tile == PLAYER_1) ? p1Symbol : p2Symbol;
-
-                System.out.print(toPrint + " ");
-            }
-            System.out.println();
-        }
-        System.out.println("=============\n1 2 3 4 5 6 7");
+        board.printBoard(p1Symbol, p2Symbol);
     }
 }
@@ -0,0 +1,109 @@
+package projects.connect4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read only opening book, a file with the best move for every position up to a number of tiles,
+ * generated ahead of time by {@link OpeningBookGenerator}. The file is memory mapped, so opening it
+ * does not read the whole file into memory and looking up a position is a binary search over it.
+ * <p>
+ * The file starts with a header of the MAGIC number and the number of entries, both as ints.
+ * After that comes one long per position, sorted in ascending order:
+ * bits 0-55 - The canonical key of the position from the view of the player to move, see {@link BitBoard#getKey(int)}.
+ * bits 56-59 - The best column to play.
+ * <p>
+ * A position and its mirror image have the same best move, mirrored. Only the position with the smaller
+ * key of the two is stored, which is what is meant by the canonical key, so the book is about half the size.
+ * <p>
+ * Books are only made for the standard board, the keys of larger boards do not fit in 56 bits.
+ */
+class OpeningBook {
+    static final int MAGIC = 0x43344F42; //"C4OB"
+    static final int NOT_FOUND = -1;
+
+    static final String DEFAULT_FILE = "connect4.book";
+
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+    static final int COLUMN_SHIFT = 56;
+    static final long KEY_MASK = (1L << COLUMN_SHIFT) - 1;
+
+    private final LongBuffer entries;
+
+    private OpeningBook(LongBuffer entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Maps the given book file into memory.
+     *
+     * @param file The book file to open.
+     * @return The opened book.
+     * @throws IOException If the file can not be read or is not an opening book, or the board is not
+     *                     the standard board.
+     */
+    static OpeningBook open(Path file) throws IOException {
+        if (!AbstractBoard.isStandard())
+            throw new IOException("Opening books can only be used on the standard board");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC)
+                throw new IOException(file + " is not an opening book");
+
+            int size = buffer.getInt();
+            if (buffer.remaining() != (long) size * Long.BYTES)
+                throw new IOException(file + " should have " + size + " entries but has the wrong size");
+
+            return new OpeningBook(buffer.slice().asLongBuffer());
+        }
+    }
+
+    /**
+     * @param board  The position to look up.
+     * @param player The player to move.
+     * @return The best column for the player to move, or NOT_FOUND if the position is not in the book.
+     */
+    int lookup(BitBoard board, int player) {
+        long key = board.getKey(player);
+        long mirrored = BitBoard.mirrorKey(key);
+
+        if (mirrored < key) {
+            int col = find(mirrored);
+            return col == NOT_FOUND ? NOT_FOUND : AbstractBoard.COLUMNS - 1 - col;
+        }
+        return find(key);
+    }
+
+    /**
+     * @return The number of positions in the book.
+     */
+    int size() {
+        return entries.limit();
+    }
+
+    private int find(long key) {
+        int low = 0;
+        int high = entries.limit() - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long entry = entries.get(mid);
+            long midKey = entry & KEY_MASK;
+
+            if (midKey < key)
+                low = mid + 1;
+            else if (midKey > key)
+                high = mid - 1;
+            else
+                return (int) (entry >>> COLUMN_SHIFT);
+        }
+
+        return NOT_FOUND;
+    }
+}
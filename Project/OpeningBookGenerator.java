@@ -0,0 +1,133 @@
+package projects.connect4;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Creates the file read by {@link OpeningBook}. Every position that can be reached with up to a given
+ * number of tiles on the board is searched deeply with the AI and its best move is written to the book.
+ * This takes a long time, but only has to be done once.
+ * <p>
+ * Usage: OpeningBookGenerator [plies] [depth] [file]
+ * plies - Positions with up to this many tiles are put in the book, 6 by default.
+ * depth - How deep every position is searched, 12 by default.
+ * file - Where to write the book, connect4.book by default.
+ */
+class OpeningBookGenerator {
+    private static final int DEFAULT_PLIES = 6;
+    private static final int DEFAULT_DEPTH = 12;
+
+    private final int plies;
+    private final int depth;
+
+    //Every position found, by canonical key, together with the board of the canonical position
+    private final Map<Long, BitBoard> positions = new HashMap<>();
+
+    //Every thread gets its own AI for each player, the AIs are not thread safe
+    private final ThreadLocal<AI[]> ais;
+
+    OpeningBookGenerator(int plies, int depth) {
+        this.plies = plies;
+        this.depth = depth;
+
+        ais = ThreadLocal.withInitial(() -> {
+            AI first = new AI(Board.PLAYER_1, Board.PLAYER_2, depth);
+            AI second = new AI(Board.PLAYER_2, Board.PLAYER_1, depth);
+            first.verbose = false;
+            second.verbose = false;
+            return new AI[]{first, second};
+        });
+    }
+
+    /**
+     * Finds all positions, searches them in parallel and writes the book.
+     *
+     * @param file Where to write the book.
+     * @throws IOException If the book could not be written.
+     */
+    void generate(String file) throws IOException {
+        collectPositions(new BitBoard(), new BitBoard(), Board.PLAYER_1);
+        System.out.println("Found " + positions.size() + " positions with up to " + plies + " tiles.");
+
+        long[] keys = new long[positions.size()];
+        int i = 0;
+        for (long key : positions.keySet())
+            keys[i++] = key;
+        Arrays.sort(keys);
+
+        int[] columns = new int[keys.length];
+        IntStream.range(0, keys.length).parallel().forEach(index -> columns[index] = bestColumn(keys[index]));
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(keys.length);
+            for (int index = 0; index < keys.length; index++)
+                out.writeLong(keys[index] | ((long) columns[index] << OpeningBook.COLUMN_SHIFT));
+        }
+
+        System.out.println("Wrote " + keys.length + " positions to " + file + ".");
+    }
+
+    /**
+     * Depth-first walk over all positions with up to plies tiles. Positions that are already won are
+     * not included, and neither is anything that follows them. A position that has already been found,
+     * through another order of moves or as the mirror of another position, is not walked again.
+     * The mirror image of the board is walked alongside it, so that the canonical one of the two is
+     * the one kept and searched, whichever of them the walk reaches first.
+     *
+     * @param mirrored The board with every move played in the mirrored column.
+     */
+    private void collectPositions(BitBoard board, BitBoard mirrored, int player) {
+        if (board.getMoveCount() > plies || board.isWonFor(Board.PLAYER_1) || board.isWonFor(Board.PLAYER_2))
+            return;
+
+        long key = board.getKey(player);
+        long canonical = Math.min(key, BitBoard.mirrorKey(key));
+        if (positions.containsKey(canonical))
+            return;
+        positions.put(canonical, key == canonical ? board.getCopy() : mirrored.getCopy());
+
+        int opponent = player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+        for (int col : board.getValidMoves()) {
+            board.play(col, player);
+            mirrored.play(Board.COLUMNS - 1 - col, player);
+            collectPositions(board, mirrored, opponent);
+            mirrored.undo(Board.COLUMNS - 1 - col);
+            board.undo(col);
+        }
+    }
+
+    /**
+     * Searches the canonical position with the given key and returns its best column.
+     * The AI is cleared first, so that the column does not depend on which positions the thread happened
+     * to search before this one and the same book is generated every time.
+     */
+    private int bestColumn(long canonical) {
+        BitBoard board = positions.get(canonical);
+
+        //Player 1 always starts when the positions are collected
+        int player = board.getMoveCount() % 2 == 0 ? Board.PLAYER_1 : Board.PLAYER_2;
+        AI ai = ais.get()[player - 1];
+        ai.clear();
+        return ai.findBestMoveMinMax(board);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int plies = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PLIES;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_DEPTH;
+        String file = args.length > 2 ? args[2] : OpeningBook.DEFAULT_FILE;
+
+        if (!Board.isStandard()) {
+            System.out.println("Opening books can only be generated for the standard board of 6 rows and 7 columns.");
+            return;
+        }
+
+        new OpeningBookGenerator(plies, depth).generate(file);
+    }
+}
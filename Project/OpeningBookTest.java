@@ -0,0 +1,100 @@
+package projects.connect4;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Generates a small book with {@link OpeningBookGenerator} and checks that the {@link OpeningBook} answers every
+ * position in it with the column a search of the position finds, whichever way round the position is mirrored.
+ */
+public class OpeningBookTest {
+    private static final int PLIES = 4;
+    private static final int DEPTH = 4;
+
+    @Test
+    public void testLookupsMatchSearch() throws IOException {
+        //Books are only made for the standard board
+        if (!Board.isStandard())
+            return;
+
+        Path file = Files.createTempFile("connect4", ".book");
+        try {
+            new OpeningBookGenerator(PLIES, DEPTH).generate(file.toString());
+            OpeningBook sut = OpeningBook.open(file);
+
+            AI[] ais = {new AI(Board.PLAYER_1, Board.PLAYER_2, DEPTH), new AI(Board.PLAYER_2, Board.PLAYER_1, DEPTH)};
+            for (AI ai : ais)
+                ai.verbose = false;
+
+            Set<Long> canonicalKeys = new HashSet<>();
+            checkPositions(sut, ais, new BitBoard(), new BitBoard(), Board.PLAYER_1, new HashSet<>(), canonicalKeys);
+            assertEquals(canonicalKeys.size(), sut.size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testPositionsOutsideTheBook() throws IOException {
+        if (!Board.isStandard())
+            return;
+
+        Path file = Files.createTempFile("connect4", ".book");
+        try {
+            new OpeningBookGenerator(1, 1).generate(file.toString());
+            OpeningBook sut = OpeningBook.open(file);
+
+            BitBoard board = new BitBoard();
+            board.play(3, Board.PLAYER_1);
+            board.play(3, Board.PLAYER_2);
+            assertEquals(OpeningBook.NOT_FOUND, sut.lookup(board, Board.PLAYER_1));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Walks every position with up to PLIES tiles, as the generator does, and compares the book with a search
+     * of the position by an AI that starts from nothing. Only the canonical one of a position and its mirror image
+     * is searched for the book, the other gets the mirrored column. A search of the mirror image could break a tie
+     * between columns the other way, so the mirror image is compared with the mirrored search.
+     *
+     * @param mirrored The mirror image of the board, where every move has been played in the mirrored column.
+     */
+    private void checkPositions(OpeningBook book, AI[] ais, BitBoard board, BitBoard mirrored, int player,
+                                Set<Long> keys, Set<Long> canonicalKeys) {
+        if (board.getMoveCount() > PLIES || board.isWonFor(Board.PLAYER_1) || board.isWonFor(Board.PLAYER_2))
+            return;
+
+        long key = board.getKey(player);
+        if (!keys.add(key))
+            return;
+        long canonical = Math.min(key, BitBoard.mirrorKey(key));
+        canonicalKeys.add(canonical);
+
+        AI ai = ais[player - 1];
+        ai.clear();
+        int expected = key == canonical ? ai.findBestMoveMinMax(board) : Board.COLUMNS - 1 - ai.findBestMoveMinMax(mirrored);
+        assertEquals(expected, book.lookup(board, player));
+
+        int opponent = player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+        int playable = board.getPlayableColumns();
+        for (int col = 0; col < Board.COLUMNS; col++) {
+            if ((playable & (1 << col)) == 0)
+                continue;
+
+            board.play(col, player);
+            mirrored.play(Board.COLUMNS - 1 - col, player);
+            checkPositions(book, ais, board, mirrored, opponent, keys, canonicalKeys);
+            mirrored.undo(Board.COLUMNS - 1 - col);
+            board.undo(col);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package projects.connect4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counters of how a search by the {@link AI} went, reset before every move. Used to see what a change
+ * to the search does, for example if a better move ordering really makes alpha-beta cut off more.
+ * <p>
+ * nodes - Every position visited by the search, including the positions solved by the Solver.
+ * nodesPerDepth - The nodes by how many moves below the root they were, summed over all iterations.
+ * cutoffs - Positions where a move was good enough that the rest of the moves did not have to be searched.
+ * firstMoveCutoffs - Cutoffs caused by the first move searched. With perfect move ordering every cutoff is one.
+ * expanded - Positions where moves were searched, that is neither leaves nor answered by the table.
+ * tableProbes, tableHits - Lookups in the transposition table and how many of them found the position.
+ * tableCutoffs - Table hits whose stored score could be returned without searching the position.
+ * threatCutoffs - Positions won or lost on the next moves, answered from their threats without searching, see Threats.
+ * evaluations, evaluationCacheHits - Leaves scored by the heuristic and how many of the scores were found in the cache.
+ * researches - Moves searched again with the full window after a null window search found them better than expected.
+ * aspirationFailures - Depths searched again with the full window because the score fell outside the aspiration window.
+ * <p>
+ * The counters are not thread safe. Every thread of a parallel search counts on its own and the
+ * counts are added together with add when the thread is done.
+ */
+class SearchStatistics {
+    //One more than the number of squares, enough for every depth of a search from the empty board
+    private static final int MAX_DEPTH = Board.ROWS * Board.COLUMNS + 1;
+
+    long nodes;
+    final long[] nodesPerDepth = new long[MAX_DEPTH];
+    long cutoffs;
+    long firstMoveCutoffs;
+    long expanded;
+    long tableProbes;
+    long tableHits;
+    long tableCutoffs;
+    long threatCutoffs;
+    long evaluations;
+    long evaluationCacheHits;
+    long researches;
+    long aspirationFailures;
+
+    //The number of tiles on the board at the root, to know how deep a node is
+    int rootMoves;
+
+    //Every completed or aborted search of the root, one per depth when searching with iterative deepening
+    final List<Iteration> iterations = new ArrayList<>();
+
+    private long startNanos;
+    private long elapsedNanos;
+
+    /**
+     * Clears every counter and starts the clock for a new search.
+     *
+     * @param rootMoves The number of tiles on the board the search starts from.
+     */
+    void reset(int rootMoves) {
+        nodes = 0;
+        Arrays.fill(nodesPerDepth, 0);
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        expanded = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        tableCutoffs = 0;
+        threatCutoffs = 0;
+        evaluations = 0;
+        evaluationCacheHits = 0;
+        researches = 0;
+        aspirationFailures = 0;
+        iterations.clear();
+
+        this.rootMoves = rootMoves;
+        startNanos = System.nanoTime();
+        elapsedNanos = 0;
+    }
+
+    /**
+     * Counts a node at the position with the given number of tiles.
+     */
+    void node(int moves) {
+        nodes++;
+        nodesPerDepth[moves - rootMoves]++;
+    }
+
+    /**
+     * Adds the counters of a search done by another thread to these, except the iterations and the time.
+     */
+    void add(SearchStatistics other) {
+        nodes += other.nodes;
+        for (int depth = 0; depth < MAX_DEPTH; depth++)
+            nodesPerDepth[depth] += other.nodesPerDepth[depth];
+        cutoffs += other.cutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        expanded += other.expanded;
+        tableProbes += other.tableProbes;
+        tableHits += other.tableHits;
+        tableCutoffs += other.tableCutoffs;
+        threatCutoffs += other.threatCutoffs;
+        evaluations += other.evaluations;
+        evaluationCacheHits += other.evaluationCacheHits;
+        researches += other.researches;
+        aspirationFailures += other.aspirationFailures;
+    }
+
+    /**
+     * Records that a search of the root to the given depth finished or was aborted.
+     */
+    void iterationDone(int depth, int score, int column, boolean aborted) {
+        iterations.add(new Iteration(depth, score, column, aborted, nodes, System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Stops the clock, called when the search is done.
+     */
+    void stop() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    long nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * @return The share of the expanded positions that were cut off, between 0 and 1.
+     */
+    double cutoffRate() {
+        return expanded == 0 ? 0 : (double) cutoffs / expanded;
+    }
+
+    /**
+     * @return The share of the cutoffs that were caused by the first move, between 0 and 1.
+     */
+    double firstMoveCutoffRatio() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    /**
+     * @return The share of the table lookups that found the position, between 0 and 1.
+     */
+    double tableHitRate() {
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    /**
+     * @return The share of the evaluations that were found in the evaluation cache, between 0 and 1.
+     */
+    double evaluationCacheHitRate() {
+        return evaluations == 0 ? 0 : (double) evaluationCacheHits / evaluations;
+    }
+
+    /**
+     * @return The number of nodes at every depth below the root, up to the deepest depth with nodes.
+     */
+    long[] nodesPerDepth() {
+        int depths = MAX_DEPTH;
+        while (depths > 0 && nodesPerDepth[depths - 1] == 0)
+            depths--;
+        return Arrays.copyOf(nodesPerDepth, depths);
+    }
+
+    /**
+     * @return One line with the totals, followed by one line for every iteration.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(String.format(
+                "%d nodes in %.1f ms (%d nodes/s), cutoff rate %.1f%%, first move cutoffs %.1f%%, " +
+                        "table hits %.1f%% (%d cutoffs), %d threat cutoffs, evaluation cache hits %.1f%%, " +
+                        "%d re-searches, %d aspiration failures, nodes per depth %s",
+                nodes, elapsedNanos / 1e6, nodesPerSecond(), 100 * cutoffRate(), 100 * firstMoveCutoffRatio(),
+                100 * tableHitRate(), tableCutoffs, threatCutoffs, 100 * evaluationCacheHitRate(), researches, aspirationFailures, Arrays.toString(nodesPerDepth())));
+
+        for (Iteration iteration : iterations)
+            builder.append(System.lineSeparator()).append("  ").append(iteration);
+
+        return builder.toString();
+    }
+
+    /**
+     * The result of one search of the root. The nodes and time are counted from the start of the
+     * move, so for iterative deepening they include the shallower iterations.
+     */
+    static class Iteration {
+        final int depth;
+        final int score;
+        final int column;
+        final boolean aborted;
+        final long nodes;
+        final long elapsedNanos;
+
+        Iteration(int depth, int score, int column, boolean aborted, long nodes, long elapsedNanos) {
+            this.depth = depth;
+            this.score = score;
+            this.column = column;
+            this.aborted = aborted;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            if (aborted)
+                return String.format("depth %d aborted after %d nodes, %.1f ms", depth, nodes, elapsedNanos / 1e6);
+            return String.format("depth %d: column %d, score %d, %d nodes, %.1f ms",
+                    depth, column + 1, score, nodes, elapsedNanos / 1e6);
+        }
+    }
+}
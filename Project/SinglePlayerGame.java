@@ -1,14 +1,30 @@
 package projects.connect4;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Random;
 import java.util.Scanner;
 
+import static projects.connect4.AI.WIN_SCORE;
+
 public class SinglePlayerGame extends Game {
 
     private static final int PLAYER = Board.PLAYER_1;
     private static final int AI = Board.PLAYER_2;
 
+    //Chosen difficulty that searches on time instead of to a fixed depth
+    private static final int TIMED = -1;
+    private static final int TIME_PER_MOVE = 2000;
+
+    //Chosen difficulty that plays with Monte Carlo Tree Search instead of minmax, for TIME_PER_MOVE
+    private static final int MONTE_CARLO = -2;
+
+    //How deep the columns are searched when the player asks for a hint
+    private static final int HINT_DEPTH = 8;
+
     private static final String DEFAULT_PLAYER_SYMBOL = "#";
     private static final String DEFAULT_AI_SYMBOL = "X";
 
@@ -17,10 +33,14 @@ public class SinglePlayerGame extends Game {
     private boolean finished = false;
     private int winner;
     private int currentPlayer;
+    private int lastColumn;
+    private int result = GameLog.Record.UNFINISHED;
     private Board board;
 
-    private AI ai1;
-    private AI ai2;
+    private Engine ai1;
+
+    //Created the first time the player asks for a hint
+    private AI hintAI;
 
     private Scanner scan = new Scanner(System.in);
     private Random rand = new Random();
@@ -30,18 +50,24 @@ public class SinglePlayerGame extends Game {
 
         int depthForMinMAx = chooseDifficulty();
 
-        ai1 = new AI(AI, PLAYER, depthForMinMAx);
-        ai2 = new AI(PLAYER, AI, depthForMinMAx);
+        if (depthForMinMAx == MONTE_CARLO)
+            ai1 = createMonteCarloAI(AI, PLAYER);
+        else
+            ai1 = createMinMaxAI(AI, PLAYER, depthForMinMAx, loadOpeningBook());
 
         chooseSymbols();
 
         currentPlayer = rand.nextBoolean() ? PLAYER : AI;
+        int firstPlayer = currentPlayer;
 
         do {
-            if (currentPlayer == PLAYER)
-                //playerTurn();
-                aiTurn(ai2);
-            else //AI's turn
+            if (currentPlayer == PLAYER) {
+                playerTurn();
+
+                //The player quit, no move was made
+                if (finished)
+                    break;
+            } else //AI's turn
                 aiTurn(ai1);
 
             handleGameStatus(checkGameStatus());
@@ -49,17 +75,41 @@ public class SinglePlayerGame extends Game {
 
         } while (!finished);
 
+        saveGame(firstPlayer, result);
+    }
+
+    /**
+     * Opens the opening book if there is one, created by OpeningBookGenerator.
+     *
+     * @return The book or null if there is no book.
+     */
+    private OpeningBook loadOpeningBook() {
+        Path file = Paths.get(OpeningBook.DEFAULT_FILE);
+        if (!Files.exists(file))
+            return null;
+
+        try {
+            return OpeningBook.open(file);
+        } catch (IOException e) {
+            System.out.println("Could not open the opening book, playing without it. " + e.getMessage());
+            return null;
+        }
     }
 
+    /**
+     * Only the move just made can have ended the game, so the win is checked from the last tile placed
+     * and the player who placed it is the winner.
+     */
     private GameStatus checkGameStatus() {
-        if (!board.isTerminal())
-            return GameStatus.NOT_CONCLUDED;
+        if (board.isWonByLastMove(lastColumn)) {
+            winner = currentPlayer;
+            return GameStatus.WON;
+        }
 
         if (gameIsTied())
             return GameStatus.TIE;
 
-        winner = board.isWonFor(PLAYER) ? PLAYER : AI;
-        return GameStatus.WON;
+        return GameStatus.NOT_CONCLUDED;
     }
 
     /**
@@ -78,10 +128,30 @@ public class SinglePlayerGame extends Game {
         //Can be either win or tie;
         String conclusion = (status == GameStatus.WON) ? winnerText() : tieText();
         System.out.println(conclusion);
+        result = (status == GameStatus.WON) ? winner : GameLog.Record.DRAW;
         finished = true;
     }
 
-    private void aiTurn(AI ai) {
+    private AI createMinMaxAI(int value, int opponentValue, int depth, OpeningBook book) {
+        AI ai = new AI(value, opponentValue, depth);
+
+        //The AI only thinks on the player's time when pondering, so it can use every core
+        ai.setThreads(Runtime.getRuntime().availableProcessors());
+        ai.book = book;
+
+        if (depth == TIMED)
+            ai.timeLimit = TIME_PER_MOVE;
+
+        return ai;
+    }
+
+    private MonteCarloAI createMonteCarloAI(int value, int opponentValue) {
+        MonteCarloAI ai = new MonteCarloAI(value, opponentValue, TIME_PER_MOVE);
+        ai.setThreads(Runtime.getRuntime().availableProcessors());
+        return ai;
+    }
+
+    private void aiTurn(Engine ai) {
         printBoard();
         System.out.println("Computer is thinking...");
 
@@ -91,12 +161,8 @@ public class SinglePlayerGame extends Game {
             e.printStackTrace();
         }
 
-        //int start = (int) System.currentTimeMillis(); //For testing running time
-
-        int col = ai.findBestMoveMinMax(board);
-
-        //System.out.println("Time took for minmax algorithm to find a move with optimization of alpha/beta-pruning at depth " +
-          //      ai.depth + ": " + ((double) ((int) System.currentTimeMillis() - start) / 100) + " seconds.");
+        //How long the search took and how it went is printed by the AI, see SearchStatistics
+        int col = ai.findBestMove(board);
 
         int row = getNextRow(col);
         placeTile(row, col);
@@ -105,27 +171,29 @@ public class SinglePlayerGame extends Game {
     private void playerTurn() {
         boolean valid = false;
 
+        //The computer thinks about its next move while the player thinks, it keeps what it found for aiTurn
+        ai1.ponder(board);
+
         do {
             printBoard();
             System.out.println("Your turn:");
             String in = scan.nextLine();
+            int col = parseColumn(in);
+            if (col != -1) {
+                int row = getNextRow(col);
+
+                if (row == Board.COLUMN_IS_FULL)
+                    System.out.println("That column is full, try another one!");
+                else {
+                    placeTile(row, col);
+                    valid = true;
+                }
+                continue;
+            }
+
             switch (in) {
-                case "1":
-                case "2":
-                case "3":
-                case "4":
-                case "5":
-                case "6":
-                case "7":
-                    int col = Integer.parseInt(in) - 1;
-                    int row = getNextRow(col);
-
-                    if (row == Board.COLUMN_IS_FULL)
-                        System.out.println("That column is full, try another one!");
-                    else {
-                        placeTile(row, col);
-                        valid = true;
-                    }
+                case "hint":
+                    printHint();
                     break;
                 case "exit":
                     System.out.println("Game over! You quit the game!");
@@ -134,14 +202,42 @@ public class SinglePlayerGame extends Game {
                     break;
                 default:
                     System.out.println("Input the column you want to place your tile and press enter, " +
-                            "or exit to quit the current game.");
+                            "hint to see what the computer thinks of every column, or exit to quit the current game.");
             }
 
         } while (!valid);
+
+        ai1.stopPondering();
+    }
+
+    /**
+     * Prints the score of every column for the player and the moves the computer expects to follow it,
+     * best column first.
+     */
+    private void printHint() {
+        if (hintAI == null) {
+            hintAI = new AI(PLAYER, AI, HINT_DEPTH);
+            hintAI.verbose = false;
+        }
+
+        System.out.println("Columns from best to worst, with the moves expected to follow:");
+        for (AI.Variation variation : hintAI.analyzeAll(board)) {
+            //The constant AI of this class hides the class, so the win score is imported
+            String score = variation.score >= WIN_SCORE ? "wins" :
+                    variation.score <= -WIN_SCORE ? "loses" : String.valueOf(variation.score);
+
+            StringBuilder line = new StringBuilder();
+            for (int i = 1; i < variation.moves.length; i++)
+                line.append(i == 1 ? ", then " : " ").append(variation.moves[i] + 1);
+
+            System.out.printf("  Column %d: %s%s%n", variation.column + 1, score, line);
+        }
     }
 
     private void placeTile(int row, int col) {
         board.addTile(row, col, currentPlayer);
+        lastColumn = col;
+        recordMove(col);
     }
 
     private int getNextRow(int col) {
@@ -162,7 +258,9 @@ public class SinglePlayerGame extends Game {
                 "Easy: 2\n" +
                 "Modest: 3\n" +
                 "Hard: 4\n" +
-                "Brutal: 5");
+                "Brutal: 5\n" +
+                "Relentless (thinks for " + TIME_PER_MOVE / 1000 + " seconds per move): 6\n" +
+                "Gambler (plays out random games for " + TIME_PER_MOVE / 1000 + " seconds per move): 7");
         do {
 
             System.out.println("Choose wisely... ");
@@ -184,8 +282,14 @@ public class SinglePlayerGame extends Game {
                 case "5":
                     depth = 8;
                     break;
+                case "6":
+                    depth = TIMED;
+                    break;
+                case "7":
+                    depth = MONTE_CARLO;
+                    break;
                 default:
-                    System.out.println("No backing down, choose a difficulty! (1, 2, 3, 4 or 5)");
+                    System.out.println("No backing down, choose a difficulty! (1, 2, 3, 4, 5, 6 or 7)");
                     valid = false;
                     break;
             }
@@ -0,0 +1,192 @@
+package projects.connect4;
+
+import java.util.Arrays;
+
+/**
+ * Perfect play solver for positions close to the end of the game. Where the AI scores a position with
+ * a heuristic once it reaches its maximum depth, the solver searches all the way to the end of the game
+ * and returns the exact outcome with perfect play from both sides.
+ * <p>
+ * The score of a position is from the view of the player to move and tells both who wins and how fast:
+ * 0 - The game is a draw.
+ * positive - The player to move wins. The score is one more than the number of tiles the player has left
+ * after the winning move, so the sooner the win, the higher the score.
+ * negative - The opponent wins, the score is the same as the opponent's score but negated.
+ * <p>
+ * The search is a negamax, minmax written from the view of the player to move so that the score of a
+ * position is the negated score of its best child. Instead of searching with the whole window at once the
+ * exact score is found by a sequence of null window searches, a window of width one that only answers if
+ * the score is above or below a guess. These are much faster than a search with a wide window and the
+ * guesses are chosen so that the range of possible scores is halved every time, as in a binary search.
+ */
+class Solver {
+    static final int SIZE = AbstractBoard.ROWS * AbstractBoard.COLUMNS;
+
+    private static final int MIN_SCORE = -SIZE / 2;
+
+    //Every entry is the canonical key of a position and an upper bound of its score. The key can take up all
+    //64 bits on the largest boards, so the bounds are kept in an array of their own, stored as bound - MIN_SCORE + 1.
+    private final long[] keys;
+    private final byte[] bounds;
+    private final int mask;
+
+    long nodes;
+
+    /**
+     * @param tableSizeMB Memory budget in megabytes for the table of upper bounds.
+     */
+    Solver(int tableSizeMB) {
+        if (tableSizeMB < 1)
+            throw new IllegalArgumentException("The table needs at least 1 MB, was " + tableSizeMB);
+
+        long maxEntries = (long) tableSizeMB * 1024 * 1024 / (Long.BYTES + Byte.BYTES);
+        int size = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 30));
+        keys = new long[size];
+        bounds = new byte[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Finds the best move of the position by solving every move.
+     *
+     * @param board  The position to solve, must not be won or full.
+     * @param player The player to move.
+     * @return The best column and its score, see the class description for the meaning of the score.
+     */
+    AI.ScorePlacementPair findBestMove(BitBoard board, int player) {
+        int opponent = player == AbstractBoard.PLAYER_1 ? AbstractBoard.PLAYER_2 : AbstractBoard.PLAYER_1;
+
+        //On a symmetric board a move and its mirror image have the same score, only the left one is solved
+        boolean symmetric = board.isSymmetric();
+
+        int bestScore = Integer.MIN_VALUE;
+        int bestColumn = -1;
+        for (int col : AbstractBoard.CENTER_FIRST) {
+            if (board.getNextRow(col) == AbstractBoard.COLUMN_IS_FULL
+                    || (symmetric && col > AbstractBoard.COLUMNS - 1 - col))
+                continue;
+
+            int score;
+            if (board.isWinningMove(col, player)) {
+                score = (SIZE + 1 - board.getMoveCount()) / 2;
+            } else {
+                board.play(col, player);
+                score = -solve(board, opponent);
+                board.undo(col);
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestColumn = col;
+            }
+        }
+
+        return new AI.ScorePlacementPair(bestScore, bestColumn);
+    }
+
+    /**
+     * Forgets every position solved so far, as if the solver was just created.
+     */
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(bounds, (byte) 0);
+    }
+
+    /**
+     * @param board  The position to solve, must not be won.
+     * @param player The player to move.
+     * @return The exact score of the position for the player to move.
+     */
+    int solve(BitBoard board, int player) {
+        int moves = board.getMoveCount();
+        int min = -(SIZE - moves) / 2;
+        int max = (SIZE + 1 - moves) / 2;
+
+        while (min < max) {
+            int guess = min + (max - min) / 2;
+
+            //Guessing closer to 0 first finds out quickly who wins, which is usually all that is needed
+            if (guess <= 0 && min / 2 < guess)
+                guess = min / 2;
+            else if (guess >= 0 && max / 2 > guess)
+                guess = max / 2;
+
+            int score = negamax(board, player, guess, guess + 1);
+            if (score <= guess)
+                max = score;
+            else
+                min = score;
+        }
+
+        return min;
+    }
+
+    /**
+     * @param score A score returned by the solver.
+     * @param moves The number of tiles on the board of the position the score is for.
+     * @return The number of moves, counting both players, until the game ends with perfect play.
+     */
+    static int movesToEnd(int score, int moves) {
+        if (score == 0)
+            return SIZE - moves;
+
+        //The winning move is the player's n:th move from the end, where n is the score
+        int winner = score > 0 ? moves : moves + 1;
+        int winningMove = SIZE + 1 - 2 * Math.abs(score);
+        if ((winningMove - winner) % 2 == 0)
+            winningMove++;
+
+        return winningMove - moves;
+    }
+
+    private int negamax(BitBoard board, int player, int alpha, int beta) {
+        nodes++;
+
+        int moves = board.getMoveCount();
+        if (moves == SIZE)
+            return 0;
+
+        for (int col = 0; col < AbstractBoard.COLUMNS; col++)
+            if (board.getNextRow(col) != AbstractBoard.COLUMN_IS_FULL && board.isWinningMove(col, player))
+                return (SIZE + 1 - moves) / 2;
+
+        //No win this move, so the best possible is to win with the next move
+        int max = (SIZE - 1 - moves) / 2;
+        //A position and its mirror image have the same score, so they share an entry
+        long key = board.getKey(player);
+        key = Math.min(key, BitBoard.mirrorKey(key));
+        int index = index(key);
+        if (keys[index] == key && bounds[index] != 0)
+            max = bounds[index] + MIN_SCORE - 1;
+
+        if (beta > max) {
+            beta = max;
+            if (alpha >= beta)
+                return beta;
+        }
+
+        int opponent = player == AbstractBoard.PLAYER_1 ? AbstractBoard.PLAYER_2 : AbstractBoard.PLAYER_1;
+        for (int col : AbstractBoard.CENTER_FIRST) {
+            if (board.getNextRow(col) == AbstractBoard.COLUMN_IS_FULL)
+                continue;
+
+            board.play(col, player);
+            int score = -negamax(board, opponent, -beta, -alpha);
+            board.undo(col);
+
+            if (score >= beta)
+                return score;
+            if (score > alpha)
+                alpha = score;
+        }
+
+        //Every move was searched and none reached above alpha, so alpha is an upper bound of the score
+        keys[index] = key;
+        bounds[index] = (byte) (alpha - MIN_SCORE + 1);
+        return alpha;
+    }
+
+    private int index(long key) {
+        return (int) (key ^ (key >>> 29)) & mask;
+    }
+}
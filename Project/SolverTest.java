@@ -0,0 +1,85 @@
+package projects.connect4;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the scores of the {@link Solver} against a plain minmax over the whole rest of the game, on random
+ * positions close enough to the end for the full search to finish quickly. The full search has no pruning,
+ * no table and no tricks, so it is slow but obviously right.
+ */
+public class SolverTest {
+    private static final int POSITIONS = 200;
+    private static final int MAX_EMPTY_SQUARES = 9;
+
+    private final Random rnd = new Random();
+
+    @Test
+    public void testAgainstFullSearch() {
+        Solver sut = new Solver(1);
+
+        for (int n = 0; n < POSITIONS; n++) {
+            BitBoard board = new BitBoard();
+            int player = randomPosition(board);
+            if (player == Board.EMPTY)
+                continue;
+
+            assertEquals(fullSearch(board, player), sut.findBestMove(board, player).score);
+        }
+    }
+
+    /**
+     * Plays random moves that do not win until there are at most MAX_EMPTY_SQUARES empty squares left.
+     *
+     * @return The player to move, or EMPTY if a player had nothing but winning moves on the way.
+     */
+    private int randomPosition(BitBoard board) {
+        int player = Board.PLAYER_1;
+        while (Solver.SIZE - board.getMoveCount() > MAX_EMPTY_SQUARES) {
+            int columns = 0;
+            for (int col = 0; col < Board.COLUMNS; col++)
+                if (board.getNextRow(col) != Board.COLUMN_IS_FULL && !board.isWinningMove(col, player))
+                    columns |= 1 << col;
+            if (columns == 0)
+                return Board.EMPTY;
+
+            int col;
+            do {
+                col = rnd.nextInt(Board.COLUMNS);
+            } while ((columns & (1 << col)) == 0);
+
+            board.play(col, player);
+            player = player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+        }
+
+        return player;
+    }
+
+    /**
+     * @return The score of the position for the player to move, on the same scale as the solver.
+     */
+    private static int fullSearch(BitBoard board, int player) {
+        for (int col = 0; col < Board.COLUMNS; col++)
+            if (board.getNextRow(col) != Board.COLUMN_IS_FULL && board.isWinningMove(col, player))
+                return (Solver.SIZE + 1 - board.getMoveCount()) / 2;
+
+        if (board.isFull())
+            return 0;
+
+        int opponent = player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+        int best = Integer.MIN_VALUE;
+        for (int col = 0; col < Board.COLUMNS; col++) {
+            if (board.getNextRow(col) == Board.COLUMN_IS_FULL)
+                continue;
+
+            board.play(col, player);
+            best = Math.max(best, -fullSearch(board, opponent));
+            board.undo(col);
+        }
+
+        return best;
+    }
+}
@@ -0,0 +1,152 @@
+package projects.connect4;
+
+/**
+ * Threat analysis of a {@link BitBoard}, what can be told about a position from its threats alone without
+ * searching it. A threat of a player is an empty square where a tile of the player would complete CONNECT
+ * in a row, see {@link BitBoard#getThreats(int)}. A threat that can be played right away is a win for the
+ * player to move, or a square the player to move has to block. A threat can also be played once the square
+ * below it has been filled, so the square right below an opponent's threat must never be played.
+ * <p>
+ * Used by the AI in two ways:
+ * 1. Before searching, forcedMove finds moves that must be played, a win, the only block or the only move
+ * that does not lose at once, and wins with a double threat. These are returned without any search at all.
+ * 2. In every position of the search, wins on the next move are returned without searching the moves, and the
+ * moves that lose on the opponent's next move are left out, see safeSquares. These moves would have been
+ * found by the search anyway, just two plies deeper.
+ * <p>
+ * The threats are also used to guess who will win by zugzwang in positions where nobody can win right away,
+ * see zugzwangControl.
+ */
+class Threats {
+    static final int NO_MOVE = -1;
+
+    private Threats() {
+    }
+
+    /**
+     * Finds the move the player has to make, if the position leaves no real choice. In order:
+     * 1. A win with the next tile.
+     * 2. The only move that does not lose on the opponent's next move, often a block.
+     * 3. A move that makes a double threat, which wins since the opponent can only block one of them.
+     *
+     * @param board  The board with the current game state, must not be won or full.
+     * @param player The player to move.
+     * @return The column to play, or NO_MOVE if the position has to be searched. Also NO_MOVE if every move
+     * loses at once, the search then decides which move loses the least badly.
+     */
+    static int forcedMove(BitBoard board, int player) {
+        long playable = board.getPlayableSquares();
+        int wins = BitBoard.columnsOf(board.getThreats(player) & playable);
+        if (wins != 0)
+            return firstColumn(wins);
+
+        int safe = BitBoard.columnsOf(safeSquares(board, player, playable));
+        if (safe == 0)
+            return NO_MOVE;
+        if ((safe & (safe - 1)) == 0)
+            return Integer.numberOfTrailingZeros(safe);
+
+        //None of the safe moves lets the opponent win at once, so a double threat can not be answered
+        for (int col : AbstractBoard.CENTER_FIRST) {
+            if ((safe & (1 << col)) == 0)
+                continue;
+
+            board.play(col, player);
+            boolean doubleThreat = hasDoubleThreat(board, player);
+            board.undo(col);
+            if (doubleThreat)
+                return col;
+        }
+
+        return NO_MOVE;
+    }
+
+    /**
+     * The squares the player to move can play without losing on the opponent's next move. If the opponent
+     * has a threat that can be played it must be blocked, and if there are two of them nothing helps.
+     * The square right below an opponent's threat is never safe, the opponent would win on top of it.
+     * The player to move is expected to have no win of its own, which would be better than any safe move.
+     *
+     * @param board    The board with the current game state.
+     * @param player   The player to move.
+     * @param playable The playable squares of the board, see {@link BitBoard#getPlayableSquares()}.
+     * @return The safe squares, laid out as the bitboards. No squares if every move loses.
+     */
+    static long safeSquares(BitBoard board, int player, long playable) {
+        long opponentThreats = board.getThreats(opponent(player));
+
+        long forced = opponentThreats & playable;
+        if (forced != 0) {
+            if ((forced & (forced - 1)) != 0)
+                return 0;
+            playable = forced;
+        }
+
+        return playable & ~(opponentThreats >>> 1);
+    }
+
+    /**
+     * A double threat is two threats the opponent can not both stop, either two threats that can be played
+     * now or one that can be played now with another right above it. The opponent can only block one of them,
+     * so unless the opponent has a win first, the player wins with the other.
+     *
+     * @param board  The board after the player's move.
+     * @param player The player who just moved.
+     * @return True if the player has a double threat.
+     */
+    static boolean hasDoubleThreat(BitBoard board, int player) {
+        long threats = board.getThreats(player);
+        long now = threats & board.getPlayableSquares();
+        return (now & (now - 1)) != 0 || (now & (threats >>> 1)) != 0;
+    }
+
+    /**
+     * Guesses who wins the position by zugzwang, from the rows of the threats. When the board fills up without
+     * anyone being able to win at once, the first player ends up with the squares of the odd rows, counted from 1
+     * at the bottom, and the second player with the even rows. The second player can force this by always playing
+     * on top of the first player's tile. So a threat of the first player on an odd row, or of the second player on
+     * an even row, is eventually won. The other threats are never reached unless the opponent makes a mistake.
+     * <p>
+     * Only the lowest threat of a column counts, the column is decided when it is reached. The first player can
+     * break the pattern with an odd threat, while the second player only needs an even threat when the first player
+     * has no odd threat. These are the classic rules, they are a good guess but not always right, so the result is
+     * only used by the heuristic. The rules only hold when every column has an even number of rows.
+     *
+     * @param board The board with the current game state.
+     * @return The player the zugzwang favours, or EMPTY if neither player has a threat of the right row.
+     */
+    static int zugzwangControl(BitBoard board) {
+        if (AbstractBoard.ROWS % 2 != 0)
+            return AbstractBoard.EMPTY;
+
+        long first = board.getThreats(AbstractBoard.PLAYER_1);
+        long second = board.getThreats(AbstractBoard.PLAYER_2);
+
+        //A threat above a threat of the opponent is never reached
+        long firstLowest = first & ~BitBoard.squaresAbove(second);
+        long secondLowest = second & ~BitBoard.squaresAbove(first);
+
+        if ((firstLowest & BitBoard.ODD_ROWS) != 0)
+            return AbstractBoard.PLAYER_1;
+        if ((secondLowest & ~BitBoard.ODD_ROWS) != 0)
+            return AbstractBoard.PLAYER_2;
+
+        return AbstractBoard.EMPTY;
+    }
+
+    /**
+     * @param columns Columns as a bit per column, at least one.
+     * @return The column closest to the center.
+     */
+    private static int firstColumn(int columns) {
+        for (int col : AbstractBoard.CENTER_FIRST)
+            if ((columns & (1 << col)) != 0)
+                return col;
+
+        return NO_MOVE;
+    }
+
+    private static int opponent(int player) {
+        return player == AbstractBoard.PLAYER_1 ? AbstractBoard.PLAYER_2 : AbstractBoard.PLAYER_1;
+    }
+}
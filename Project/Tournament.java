@@ -0,0 +1,228 @@
+package projects.connect4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays a large number of games between two AI settings without printing any boards, to measure
+ * if a change to the AI makes it stronger or faster. The games are played in parallel, one game
+ * per core at a time.
+ * <p>
+ * Every game starts with a number of random moves so that the games are not all the same. Every
+ * random opening is played twice, with each setting starting once, so neither gets the advantage
+ * of starting more often.
+ * <p>
+ * Usage: Tournament [games] [settingA] [settingB] [openingMoves]
+ * games - How many games to play, rounded up to an even number, 100 by default.
+ * settingA, settingB - dN to search to depth N, tN to think N milliseconds per move or mN to think N milliseconds
+ * per move with Monte Carlo Tree Search, d4 and d6 by default.
+ * openingMoves - How many random moves each game starts with, 4 by default.
+ */
+class Tournament {
+    //Every thread has four AIs, so they get smaller tables than usual
+    private static final int TABLE_SIZE_MB = 4;
+
+    private final Setting settingA;
+    private final Setting settingB;
+    private final int openingMoves;
+
+    private final AtomicInteger winsA = new AtomicInteger();
+    private final AtomicInteger winsB = new AtomicInteger();
+    private final AtomicInteger draws = new AtomicInteger();
+
+    private final AtomicLong nodesA = new AtomicLong();
+    private final AtomicLong nodesB = new AtomicLong();
+    private final Latencies latenciesA = new Latencies();
+    private final Latencies latenciesB = new Latencies();
+
+    //The engines are not thread safe so every thread gets its own, for both settings playing as both players
+    private final ThreadLocal<Engine[][]> ais;
+
+    Tournament(Setting settingA, Setting settingB, int openingMoves) {
+        this.settingA = settingA;
+        this.settingB = settingB;
+        this.openingMoves = openingMoves;
+
+        ais = ThreadLocal.withInitial(() -> new Engine[][]{
+                {settingA.create(Board.PLAYER_1), settingA.create(Board.PLAYER_2)},
+                {settingB.create(Board.PLAYER_1), settingB.create(Board.PLAYER_2)}
+        });
+    }
+
+    /**
+     * Plays the games and prints the results when all games are done.
+     *
+     * @param games   The number of games to play, rounded up to an even number.
+     * @param threads The number of games to play at the same time.
+     */
+    void play(int games, int threads) throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Random rand = new Random();
+        long start = System.currentTimeMillis();
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < (games + 1) / 2; i++) {
+            int[] opening = randomOpening(rand);
+            results.add(pool.submit(() -> playGame(opening, true)));
+            results.add(pool.submit(() -> playGame(opening, false)));
+        }
+
+        for (Future<?> result : results)
+            result.get();
+        pool.shutdown();
+
+        printResults(results.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Plays one game from the given opening until it is won or tied.
+     *
+     * @param opening The columns of the random opening moves.
+     * @param aFirst  True if setting A makes the first move.
+     */
+    private void playGame(int[] opening, boolean aFirst) {
+        Engine[][] players = ais.get();
+        BitBoard board = new BitBoard();
+        int player = Board.PLAYER_1;
+
+        for (int col : opening) {
+            board.play(col, player);
+            player = opponent(player);
+        }
+
+        while (true) {
+            //Setting A plays PLAYER_1 when it starts and PLAYER_2 otherwise
+            boolean aToMove = (player == Board.PLAYER_1) == aFirst;
+            Engine ai = players[aToMove ? 0 : 1][player - 1];
+
+            long start = System.nanoTime();
+            int col = ai.findBestMove(board);
+            long elapsed = System.nanoTime() - start;
+
+            (aToMove ? latenciesA : latenciesB).record(elapsed);
+            (aToMove ? nodesA : nodesB).addAndGet(ai.getNodeCount());
+
+            board.play(col, player);
+            if (board.isWonFor(player)) {
+                (aToMove ? winsA : winsB).incrementAndGet();
+                return;
+            }
+            if (board.isFull()) {
+                draws.incrementAndGet();
+                return;
+            }
+
+            player = opponent(player);
+        }
+    }
+
+    /**
+     * @return Random columns to start a game with, that do not win the game for anyone.
+     */
+    private int[] randomOpening(Random rand) {
+        int[] opening = new int[openingMoves];
+        BitBoard board = new BitBoard();
+        int player = Board.PLAYER_1;
+
+        for (int i = 0; i < openingMoves; i++) {
+            int col;
+            do {
+                col = rand.nextInt(Board.COLUMNS);
+            } while (board.getNextRow(col) == Board.COLUMN_IS_FULL || board.isWinningMove(col, player));
+
+            board.play(col, player);
+            opening[i] = col;
+            player = opponent(player);
+        }
+
+        return opening;
+    }
+
+    private void printResults(int games, long millis) {
+        System.out.printf("%d games of %s against %s with %d random opening moves in %.1f seconds.%n",
+                games, settingA, settingB, openingMoves, millis / 1000.0);
+        System.out.printf("%s won %.1f%%, %s won %.1f%%, draws %.1f%%%n",
+                settingA, 100.0 * winsA.get() / games, settingB, 100.0 * winsB.get() / games, 100.0 * draws.get() / games);
+        printEngine(settingA, nodesA.get(), latenciesA);
+        printEngine(settingB, nodesB.get(), latenciesB);
+    }
+
+    private void printEngine(Setting setting, long nodes, Latencies latencies) {
+        System.out.printf("%s: %d moves, %.0f nodes per move, %s%n",
+                setting, latencies.size(), (double) nodes / Math.max(1, latencies.size()), latencies.summary());
+    }
+
+    private static int opponent(int player) {
+        return player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+    }
+
+    /**
+     * How an AI in the tournament searches, either to a fixed depth or for a fixed time per move,
+     * with minmax or with Monte Carlo Tree Search.
+     */
+    static class Setting {
+        final int depth;
+        final int timeLimit;
+        final boolean monteCarlo;
+
+        private Setting(int depth, int timeLimit, boolean monteCarlo) {
+            this.depth = depth;
+            this.timeLimit = timeLimit;
+            this.monteCarlo = monteCarlo;
+        }
+
+        /**
+         * @param setting dN for depth N, tN for N milliseconds per move or mN for N milliseconds of Monte Carlo per move.
+         * @return The setting described by the string.
+         */
+        static Setting parse(String setting) {
+            int value = Integer.parseInt(setting.substring(1));
+            switch (setting.charAt(0)) {
+                case 'd':
+                    return new Setting(value, 0, false);
+                case 't':
+                    return new Setting(0, value, false);
+                case 'm':
+                    return new Setting(0, value, true);
+                default:
+                    throw new IllegalArgumentException("Expected dN, tN or mN but was " + setting);
+            }
+        }
+
+        Engine create(int player) {
+            if (monteCarlo) {
+                MonteCarloAI ai = new MonteCarloAI(player, opponent(player), timeLimit);
+                ai.verbose = false;
+                return ai;
+            }
+
+            AI ai = new AI(player, opponent(player), depth, TABLE_SIZE_MB);
+            ai.timeLimit = timeLimit;
+            ai.verbose = false;
+            return ai;
+        }
+
+        @Override
+        public String toString() {
+            if (monteCarlo)
+                return "Monte Carlo " + timeLimit + " ms per move";
+            return timeLimit > 0 ? timeLimit + " ms per move" : "depth " + depth;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        Setting a = Setting.parse(args.length > 1 ? args[1] : "d4");
+        Setting b = Setting.parse(args.length > 2 ? args[2] : "d6");
+        int openingMoves = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        new Tournament(a, b, openingMoves).play(games, Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,142 @@
+package projects.connect4;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size hash table used by the AI to remember positions it has already searched.
+ * In Connect 4 the same position is very often reached through different orders of the
+ * same moves, with a transposition table the result of the first search can be reused
+ * instead of searching the position again.
+ * <p>
+ * Every entry holds the score of the position, the depth it was searched to, what kind of
+ * bound the score is and the best column found. Since alpha-beta pruning cuts off the search
+ * of a position as soon as it knows that it will not be chosen, the stored score is not always
+ * the exact score of the position:
+ * EXACT - The score is the exact minmax score of the position.
+ * LOWER_BOUND - The search was cut off because the score got too high, the exact score is at least this.
+ * UPPER_BOUND - No move reached alpha, the exact score is at most this.
+ * <p>
+ * The table is indexed by the lowest bits of the Zobrist hash of the position and the whole
+ * hash is stored to tell positions that share a slot apart. When two positions share a slot the
+ * deeper search is kept, unless the stored entry is left over from an earlier move of the game.
+ * <p>
+ * The table can be shared between several searching threads without locking. Instead of the hash
+ * itself, the hash xor-ed with the data is stored. If two threads write to the same slot at the same
+ * time and the hash of one entry ends up next to the data of the other, the xor no longer matches the
+ * hash of either position and the entry is simply treated as missing.
+ */
+class TranspositionTable {
+    static final int EXACT = 1;
+    static final int LOWER_BOUND = 2;
+    static final int UPPER_BOUND = 3;
+
+    static final long NO_ENTRY = 0;
+
+    //Each entry is a long for the hash and a long for the data
+    private static final int BYTES_PER_ENTRY = 16;
+
+    //Layout of the data in an entry, the score takes up the lowest 32 bits
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int COLUMN_SHIFT = 42;
+    private static final int GENERATION_SHIFT = 46;
+
+    private final long[] hashes;
+    private final long[] entries;
+    private final int mask;
+
+    //Read by every thread that searches with the table. When the table is shared, newSearch may be called
+    //while other threads are searching and they may go on storing the old generation for a while, or two
+    //calls at the same time may only count once. Neither does any harm, the generation only decides which
+    //entries are replaced first, so it is volatile for the new value to be seen but not updated atomically.
+    private volatile int generation;
+
+    /**
+     * @param megabytes The memory budget of the table. The number of entries is rounded down to the
+     *                  closest power of two that fits within the budget.
+     */
+    TranspositionTable(int megabytes) {
+        if (megabytes < 1)
+            throw new IllegalArgumentException("The table needs at least 1 MB, was " + megabytes);
+
+        long maxEntries = (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY;
+        int size = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 30));
+
+        hashes = new long[size];
+        entries = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Should be called before each new search from the root. Entries from earlier searches are
+     * still used but are always replaced when a new entry wants their slot.
+     */
+    void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Removes every entry, as if the table was just created.
+     */
+    void clear() {
+        Arrays.fill(hashes, 0);
+        Arrays.fill(entries, NO_ENTRY);
+        generation = 0;
+    }
+
+    /**
+     * @param hash The Zobrist hash of the position.
+     * @return The entry stored for the position or NO_ENTRY if the position is not in the table.
+     */
+    long get(long hash) {
+        int index = (int) hash & mask;
+        long entry = entries[index];
+        return (hashes[index] ^ entry) == hash ? entry : NO_ENTRY;
+    }
+
+    /**
+     * Stores the result of a search. Replaces the entry already in the slot if it is empty, holds the same
+     * position, is from an earlier search or was searched to a lower or equal depth.
+     *
+     * @param hash   The Zobrist hash of the position.
+     * @param score  The score found for the position.
+     * @param depth  The depth the position was searched to.
+     * @param bound  EXACT, LOWER_BOUND or UPPER_BOUND.
+     * @param column The best column found or -1 if there is none.
+     */
+    void put(long hash, int score, int depth, int bound, int column) {
+        int index = (int) hash & mask;
+        long old = entries[index];
+
+        if (old != NO_ENTRY && (hashes[index] ^ old) != hash && generation(old) == generation && depth(old) > depth)
+            return;
+
+        long entry = (score & 0xFFFFFFFFL) |
+                ((long) depth << DEPTH_SHIFT) |
+                ((long) bound << BOUND_SHIFT) |
+                ((long) (column + 1) << COLUMN_SHIFT) |
+                ((long) generation << GENERATION_SHIFT);
+        hashes[index] = hash ^ entry;
+        entries[index] = entry;
+    }
+
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    static int column(long entry) {
+        return ((int) (entry >>> COLUMN_SHIFT) & 0xF) - 1;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & 0xFF;
+    }
+}
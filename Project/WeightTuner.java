@@ -0,0 +1,319 @@
+package projects.connect4;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tunes the weights of evaluateBoard from games the AI plays against itself and writes them to the weight
+ * file loaded by {@link EvaluationWeights}. The weights are fitted the way Texel's method does it: a good
+ * evaluation should predict how the game ends, so the evaluation of every position is turned into an expected
+ * result with a logistic function and the weights are changed until the expected results are as close as
+ * possible to the real results of the games.
+ * <p>
+ * The tuning is done in three steps:
+ * 1. Self-play - Games are played between two AIs from random openings, in parallel. Every position of a game
+ * is labelled with how the game ended, 1 for a win, 0.5 for a draw and 0 for a loss.
+ * 2. Features - The patterns evaluateBoard scores are counted for every position, from the view of both players,
+ * into one array with a row per position. Positions where the player to move can win at once are left out,
+ * since the game is decided there whatever the evaluation says.
+ * 3. Fitting - The scale of the logistic function is fitted with the current weights first, so the tuned weights
+ * stay on the same scale. Then every weight is moved up and down by a step as long as the error gets smaller,
+ * with the step halved each time no weight can be improved. The error is computed over the rows in parallel.
+ * The weight of a four is not tuned. A game ends with its first four, so none of the positions has one and the
+ * weight makes no difference to the error, it is kept as it is.
+ * <p>
+ * Usage: WeightTuner [games] [depth] [file] [openingMoves]
+ * games - How many games to play, 2000 by default.
+ * depth - How deep the AIs search in the games, 4 by default.
+ * file - The weight file to write, connect4.weights by default.
+ * openingMoves - How many random moves each game starts with, 8 by default.
+ */
+class WeightTuner {
+    private static final int DEFAULT_GAMES = 2000;
+    private static final int DEFAULT_DEPTH = 4;
+    private static final int DEFAULT_OPENING_MOVES = 8;
+
+    //Every thread has two AIs, so they get smaller tables than usual
+    private static final int TABLE_SIZE_MB = 4;
+
+    //The first step the weights are moved by when fitting, halved down to 1
+    private static final int INITIAL_STEP = 64;
+
+    //How many positions a task computes the error of
+    private static final int ROWS_PER_TASK = 4096;
+
+    private final int depth;
+    private final int openingMoves;
+    private final ExecutorService pool;
+
+    //The AIs are not thread safe so every thread gets its own, one for each player
+    private final ThreadLocal<AI[]> ais;
+
+    //One row of FEATURES counts per position, and the result of the game for the player the row is counted for
+    private int[] features;
+    private double[] results;
+    private int rows;
+
+    WeightTuner(int depth, int openingMoves, int threads) {
+        this.depth = depth;
+        this.openingMoves = openingMoves;
+        pool = Executors.newFixedThreadPool(threads);
+
+        ais = ThreadLocal.withInitial(() -> {
+            AI first = new AI(Board.PLAYER_1, Board.PLAYER_2, depth, TABLE_SIZE_MB);
+            AI second = new AI(Board.PLAYER_2, Board.PLAYER_1, depth, TABLE_SIZE_MB);
+            first.verbose = false;
+            second.verbose = false;
+            return new AI[]{first, second};
+        });
+    }
+
+    /**
+     * Plays the games and collects the labelled positions of them.
+     *
+     * @param games The number of games to play.
+     */
+    void playGames(int games) throws InterruptedException, ExecutionException {
+        Random rand = new Random();
+        List<Future<Samples>> played = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            long seed = rand.nextLong();
+            played.add(pool.submit(() -> playGame(new Random(seed))));
+        }
+
+        List<Samples> samples = new ArrayList<>();
+        for (Future<Samples> game : played) {
+            samples.add(game.get());
+            rows += samples.get(samples.size() - 1).rows;
+        }
+
+        features = new int[rows * EvaluationWeights.FEATURES];
+        results = new double[rows];
+        int row = 0;
+        for (Samples game : samples) {
+            System.arraycopy(game.features, 0, features, row * EvaluationWeights.FEATURES,
+                    game.rows * EvaluationWeights.FEATURES);
+            System.arraycopy(game.results, 0, results, row, game.rows);
+            row += game.rows;
+        }
+    }
+
+    private Samples playGame(Random rand) {
+        AI[] players = ais.get();
+        BitBoard board = new BitBoard();
+        int player = Board.PLAYER_1;
+
+        //The moves of the game, the columns of the random opening first
+        int[] moves = new int[Board.ROWS * Board.COLUMNS];
+        int count = 0;
+        int winner = Board.EMPTY;
+
+        while (true) {
+            int col;
+            if (count < openingMoves) {
+                do {
+                    col = rand.nextInt(Board.COLUMNS);
+                } while (board.getNextRow(col) == Board.COLUMN_IS_FULL || board.isWinningMove(col, player));
+            } else {
+                col = players[player - 1].findBestMoveMinMax(board);
+            }
+
+            board.play(col, player);
+            moves[count++] = col;
+            if (board.isWonByLastMove(col)) {
+                winner = player;
+                break;
+            }
+            if (board.isFull())
+                break;
+
+            player = opponent(player);
+        }
+
+        return label(moves, count, winner);
+    }
+
+    /**
+     * Replays a game and counts the features of every position after the random opening, for both players.
+     */
+    private Samples label(int[] moves, int count, int winner) {
+        Samples samples = new Samples(2 * count);
+        BitBoard board = new BitBoard();
+        int player = Board.PLAYER_1;
+
+        for (int i = 0; i < count; i++) {
+            if (i >= openingMoves && !canWinAtOnce(board, player)) {
+                for (int piece = Board.PLAYER_1; piece <= Board.PLAYER_2; piece++) {
+                    board.countFeatures(piece, samples.features, samples.rows * EvaluationWeights.FEATURES);
+                    samples.results[samples.rows++] = winner == Board.EMPTY ? 0.5 : winner == piece ? 1 : 0;
+                }
+            }
+
+            board.play(moves[i], player);
+            player = opponent(player);
+        }
+
+        return samples;
+    }
+
+    private static boolean canWinAtOnce(BitBoard board, int player) {
+        for (int columns = board.getPlayableColumns(); columns != 0; columns &= columns - 1)
+            if (board.isWinningMove(Integer.numberOfTrailingZeros(columns), player))
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Fits the scale of the logistic function with the given weights.
+     *
+     * @return The scale, the evaluation that predicts a result of about 73%.
+     */
+    double fitScale(int[] weights) throws InterruptedException, ExecutionException {
+        double bestScale = 1;
+        double bestError = Double.MAX_VALUE;
+
+        //The error is smooth in the scale, so trying scales a few percent apart is close enough
+        for (double scale = 1; scale < 100_000; scale *= 1.05) {
+            double error = error(weights, scale);
+            if (error < bestError) {
+                bestError = error;
+                bestScale = scale;
+            }
+        }
+
+        return bestScale;
+    }
+
+    /**
+     * Local search for the weights with the smallest error, starting from the given weights.
+     * The weight of FOUR is left as it is, see the class comment.
+     *
+     * @return The tuned weights.
+     */
+    int[] fit(int[] start, double scale) throws InterruptedException, ExecutionException {
+        int[] weights = start.clone();
+        double bestError = error(weights, scale);
+
+        for (int step = INITIAL_STEP; step >= 1; step /= 2) {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (int feature = 0; feature < EvaluationWeights.FEATURES; feature++) {
+                    if (feature == EvaluationWeights.FOUR)
+                        continue;
+
+                    for (int direction : new int[]{1, -1}) {
+                        weights[feature] += direction * step;
+                        double error = error(weights, scale);
+                        if (error < bestError) {
+                            bestError = error;
+                            improved = true;
+                            break;
+                        }
+                        weights[feature] -= direction * step;
+                    }
+                }
+            }
+            System.out.printf("Step %d: error %.6f, %s%n", step, bestError, EvaluationWeights.toString(weights));
+        }
+
+        return weights;
+    }
+
+    /**
+     * @return The mean squared difference between the results of the games and the results predicted
+     * from the evaluation of their positions with the given weights.
+     */
+    double error(int[] weights, double scale) throws InterruptedException, ExecutionException {
+        List<Future<Double>> parts = new ArrayList<>();
+        for (int first = 0; first < rows; first += ROWS_PER_TASK) {
+            int from = first;
+            int to = Math.min(rows, first + ROWS_PER_TASK);
+            parts.add(pool.submit(() -> squaredError(weights, scale, from, to)));
+        }
+
+        double sum = 0;
+        for (Future<Double> part : parts)
+            sum += part.get();
+
+        return sum / Math.max(1, rows);
+    }
+
+    private double squaredError(int[] weights, double scale, int from, int to) {
+        double sum = 0;
+        for (int row = from; row < to; row++) {
+            int offset = row * EvaluationWeights.FEATURES;
+            int evaluation = 0;
+            for (int feature = 0; feature < EvaluationWeights.FEATURES; feature++)
+                evaluation += weights[feature] * features[offset + feature];
+
+            double predicted = 1 / (1 + Math.exp(-evaluation / scale));
+            double difference = results[row] - predicted;
+            sum += difference * difference;
+        }
+
+        return sum;
+    }
+
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private static int opponent(int player) {
+        return player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+    }
+
+    /**
+     * The labelled positions of one game.
+     */
+    private static class Samples {
+        final int[] features;
+        final double[] results;
+        int rows;
+
+        Samples(int maxRows) {
+            features = new int[maxRows * EvaluationWeights.FEATURES];
+            results = new double[maxRows];
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_DEPTH;
+        Path file = Paths.get(args.length > 2 ? args[2] : EvaluationWeights.DEFAULT_FILE);
+        int openingMoves = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_OPENING_MOVES;
+
+        WeightTuner tuner = new WeightTuner(depth, openingMoves, Runtime.getRuntime().availableProcessors());
+        try {
+            long start = System.currentTimeMillis();
+            tuner.playGames(games);
+            System.out.printf("Played %d games at depth %d in %.1f seconds, %d positions.%n",
+                    games, depth, (System.currentTimeMillis() - start) / 1000.0, tuner.rows);
+
+            int[] current = EvaluationWeights.WEIGHTS;
+            double scale = tuner.fitScale(current);
+            double before = tuner.error(current, scale);
+            System.out.printf("Scale %.1f, error %.6f with %s%n", scale, before, EvaluationWeights.toString(current));
+
+            System.out.printf("The weight of four is kept at %d, none of the positions has a four to tune it with.%n",
+                    current[EvaluationWeights.FOUR]);
+            int[] tuned = tuner.fit(current, scale);
+            double after = tuner.error(tuned, scale);
+
+            EvaluationWeights.save(file, tuned, String.format("Tuned by WeightTuner from %d positions of %d games " +
+                    "at depth %d, error %.6f, was %.6f", tuner.rows, games, depth, after, before));
+            System.out.println("Wrote " + EvaluationWeights.toString(tuned) + " to " + file);
+        } finally {
+            tuner.shutdown();
+        }
+    }
+}
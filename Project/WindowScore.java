@@ -0,0 +1,153 @@
+package projects.connect4;
+
+/**
+ * Incrementally updated heuristic score of a {@link BitBoard}. Every way to get CONNECT in a row on
+ * the board is a window, there are 69 of them on the standard board. For every window the number of tiles each
+ * player has in it is kept up to date as tiles are placed and removed, together with the sum of the
+ * values of all windows. Reading the score of a position is then just reading that sum.
+ * <p>
+ * A window where both players have tiles can never become a line and is worth nothing.
+ * Otherwise it is worth WINDOW_VALUES[n] for the player owning the n tiles in it. Tiles in the
+ * center column are also worth a little extra, since most windows go through it.
+ * <p>
+ * The scores are kept from the view of PLAYER_1, the score for PLAYER_2 is the same score negated.
+ */
+class WindowScore {
+    private static final int CONNECT = AbstractBoard.CONNECT;
+    private static final int HEIGHT = AbstractBoard.ROWS + 1;
+
+    //{0, 1, 10, 50, 1000} when connecting four
+    private static final int[] WINDOW_VALUES = createWindowValues();
+    private static final int CENTER_VALUE = 2;
+
+    //Bit indices of the tiles in every window, laid out as in BitBoard
+    private static final int[][] WINDOWS = createWindows();
+    //Indices of the windows every bit on the board is part of
+    private static final int[][] WINDOWS_OF_BIT = createWindowsOfBit();
+
+    private int[][] counts = new int[2][WINDOWS.length];
+    private int score;
+
+    /**
+     * Updates the score for a tile placed on the given bit.
+     */
+    void add(int bit, int player) {
+        int[] own = counts[player - 1];
+        int[] other = counts[2 - player];
+        int sign = player == AbstractBoard.PLAYER_1 ? 1 : -1;
+
+        for (int window : WINDOWS_OF_BIT[bit]) {
+            if (other[window] == 0) //Before the tile the window only had own tiles, or none
+                score += sign * (WINDOW_VALUES[own[window] + 1] - WINDOW_VALUES[own[window]]);
+            else if (own[window] == 0) //The tile blocks a window the other player could use
+                score += sign * WINDOW_VALUES[other[window]];
+
+            own[window]++;
+        }
+
+        if (isCenter(bit))
+            score += sign * CENTER_VALUE;
+    }
+
+    /**
+     * Updates the score for a tile removed from the given bit, the opposite of add.
+     */
+    void remove(int bit, int player) {
+        int[] own = counts[player - 1];
+        int[] other = counts[2 - player];
+        int sign = player == AbstractBoard.PLAYER_1 ? 1 : -1;
+
+        for (int window : WINDOWS_OF_BIT[bit]) {
+            own[window]--;
+
+            if (other[window] == 0)
+                score -= sign * (WINDOW_VALUES[own[window] + 1] - WINDOW_VALUES[own[window]]);
+            else if (own[window] == 0)
+                score -= sign * WINDOW_VALUES[other[window]];
+        }
+
+        if (isCenter(bit))
+            score -= sign * CENTER_VALUE;
+    }
+
+    /**
+     * @param piece PLAYER_1 or PLAYER_2.
+     * @return The score of the position for the given player.
+     */
+    int score(int piece) {
+        return piece == AbstractBoard.PLAYER_1 ? score : -score;
+    }
+
+    WindowScore getCopy() {
+        WindowScore copy = new WindowScore();
+        copy.counts = new int[][]{counts[0].clone(), counts[1].clone()};
+        copy.score = score;
+
+        return copy;
+    }
+
+    /**
+     * @return True for the middle column, or both middle columns when the number of columns is even.
+     */
+    private static boolean isCenter(int bit) {
+        return Math.abs(2 * (bit / HEIGHT) - (AbstractBoard.COLUMNS - 1)) <= 1;
+    }
+
+    /**
+     * A full window is a win, one or two tiles short of it is worth what evaluateBoard gives three and two
+     * in a row and any other window with tiles is worth 1.
+     */
+    private static int[] createWindowValues() {
+        int[] values = new int[CONNECT + 1];
+        for (int tiles = 1; tiles <= CONNECT; tiles++)
+            values[tiles] = tiles == CONNECT ? 1000 : tiles == CONNECT - 1 ? 50 : tiles == CONNECT - 2 ? 10 : 1;
+
+        return values;
+    }
+
+    private static int[][] createWindows() {
+        //Column and height steps for horizontal, vertical and the two diagonal directions
+        int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+        int[][] windows = new int[AbstractBoard.ROWS * AbstractBoard.COLUMNS * directions.length][];
+        int count = 0;
+
+        for (int col = 0; col < AbstractBoard.COLUMNS; col++) {
+            for (int height = 0; height < AbstractBoard.ROWS; height++) {
+                for (int[] direction : directions) {
+                    int lastCol = col + (CONNECT - 1) * direction[0];
+                    int lastHeight = height + (CONNECT - 1) * direction[1];
+                    if (lastCol >= AbstractBoard.COLUMNS || lastHeight < 0 || lastHeight >= AbstractBoard.ROWS)
+                        continue;
+
+                    int[] window = new int[CONNECT];
+                    for (int i = 0; i < CONNECT; i++)
+                        window[i] = (col + i * direction[0]) * HEIGHT + height + i * direction[1];
+                    windows[count++] = window;
+                }
+            }
+        }
+
+        int[][] result = new int[count][];
+        System.arraycopy(windows, 0, result, 0, count);
+        return result;
+    }
+
+    private static int[][] createWindowsOfBit() {
+        int[] sizes = new int[AbstractBoard.COLUMNS * HEIGHT];
+        for (int[] window : WINDOWS)
+            for (int bit : window)
+                sizes[bit]++;
+
+        int[][] windowsOfBit = new int[sizes.length][];
+        for (int bit = 0; bit < sizes.length; bit++)
+            windowsOfBit[bit] = new int[sizes[bit]];
+
+        int[] filled = new int[sizes.length];
+        for (int window = 0; window < WINDOWS.length; window++)
+            for (int bit : WINDOWS[window])
+                windowsOfBit[bit][filled[bit]++] = window;
+
+        return windowsOfBit;
+    }
+}
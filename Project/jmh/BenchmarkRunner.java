@@ -0,0 +1,24 @@
+package projects.connect4;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of this folder, see run.sh for how to compile them.
+ * <p>
+ * Usage: BenchmarkRunner [benchmarks]
+ * benchmarks - Regular expression of the benchmarks to run, all of them by default, e.g. SearchBenchmark.
+ */
+class BenchmarkRunner {
+    private static final String ALL_BENCHMARKS = "projects\\.connect4\\..*Benchmark";
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : ALL_BENCHMARKS)
+                .build();
+
+        new Runner(options).run();
+    }
+}
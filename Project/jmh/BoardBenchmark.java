@@ -0,0 +1,66 @@
+package projects.connect4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the operations on {@link Board} that the game and the classic heuristic use the most.
+ * Every benchmark runs the operation once on each position of the phase, so the reported time is for
+ * all the positions together.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class BoardBenchmark {
+
+    @Param({"EARLY", "MIDDLE", "LATE"})
+    Positions phase;
+
+    private Board[] boards;
+    private int[] players;
+
+    @Setup
+    public void setUp() {
+        boards = phase.boards();
+        players = phase.playersToMove();
+    }
+
+    @Benchmark
+    public void isWonFor(Blackhole blackhole) {
+        for (int i = 0; i < boards.length; i++)
+            blackhole.consume(boards[i].isWonFor(players[i]));
+    }
+
+    @Benchmark
+    public void evaluateBoard(Blackhole blackhole) {
+        for (int i = 0; i < boards.length; i++)
+            blackhole.consume(boards[i].evaluateBoard(players[i]));
+    }
+
+    @Benchmark
+    public void getValidMoves(Blackhole blackhole) {
+        for (Board board : boards)
+            blackhole.consume(board.getValidMoves());
+    }
+
+    @Benchmark
+    public void getCopy(Blackhole blackhole) {
+        for (Board board : boards)
+            blackhole.consume(board.getCopy());
+    }
+}
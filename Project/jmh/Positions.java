@@ -0,0 +1,52 @@
+package projects.connect4;
+
+/**
+ * Fixed positions the benchmarks are run on, so that every run measures exactly the same work.
+ * Every position is written as the columns played from the empty board, 1 to 7, with player 1 starting.
+ * None of the positions is won and the player to move is always player 1 or player 2 depending on
+ * the number of moves, see playerToMove. None of them has a forced move either, see {@link Threats#forcedMove},
+ * the AI would play it without searching and there would be nothing to measure.
+ */
+enum Positions {
+    EARLY("755675", "55214344", "3225315157"),
+    MIDDLE("77124542442457", "1412514222441432", "111641444336662222"),
+    //Just before the AI hands the game over to the solver, with more empty squares than its threshold
+    LATE("53714654556636633222", "1135423433411444317377", "47714474774322666466633");
+
+    private final String[] moves;
+
+    Positions(String... moves) {
+        this.moves = moves;
+    }
+
+    /**
+     * @return New boards with the positions of this phase of the game.
+     */
+    Board[] boards() {
+        Board[] boards = new Board[moves.length];
+        for (int i = 0; i < moves.length; i++)
+            boards[i] = board(moves[i]);
+        return boards;
+    }
+
+    /**
+     * @return The player to move on each of the positions of this phase of the game.
+     */
+    int[] playersToMove() {
+        int[] players = new int[moves.length];
+        for (int i = 0; i < moves.length; i++)
+            players[i] = moves[i].length() % 2 == 0 ? Board.PLAYER_1 : Board.PLAYER_2;
+        return players;
+    }
+
+    private static Board board(String moves) {
+        Board board = new Board();
+        int player = Board.PLAYER_1;
+        for (char move : moves.toCharArray()) {
+            int col = move - '1';
+            board.addTile(board.getNextRow(col), col, player);
+            player = player == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+        }
+        return board;
+    }
+}
@@ -0,0 +1,74 @@
+package projects.connect4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a whole move of the AI at the depth of every difficulty in SinglePlayerGame. The timed
+ * difficulty is left out since it always takes the same time, the depth it reaches is what changes. So is the
+ * lowest difficulty, at depth 0 the AI picks a random column without searching.
+ * <p>
+ * The AI keeps its transposition table and move ordering between moves, which would make every
+ * invocation faster than the one before. The AIs are created once and cleared before every invocation,
+ * so that every search starts from nothing without allocating the tables over and over. Clearing them once per
+ * iteration instead would only make the first invocation of every iteration search, the others would mostly
+ * look up the table. JMH warns that setup per invocation costs time stamps around every call, but even the
+ * shallowest search here takes hundreds of microseconds, far longer than the time stamps. The AI searches
+ * on the calling thread only and without an opening book. Every position has more empty squares than the
+ * solver threshold of the AI, so it is always the search that is measured and not the solver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    int depth;
+
+    @Param({"EARLY", "MIDDLE", "LATE"})
+    Positions phase;
+
+    private Board[] boards;
+    private int[] players;
+    private AI[] ais;
+
+    @Setup
+    public void setUp() {
+        boards = phase.boards();
+        players = phase.playersToMove();
+        ais = new AI[boards.length];
+        for (int i = 0; i < ais.length; i++) {
+            int opponent = players[i] == Board.PLAYER_1 ? Board.PLAYER_2 : Board.PLAYER_1;
+            ais[i] = new AI(players[i], opponent, depth);
+            ais[i].verbose = false;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearAIs() {
+        for (AI ai : ais)
+            ai.clear();
+    }
+
+    @Benchmark
+    public void findBestMoveMinMax(Blackhole blackhole) {
+        for (int i = 0; i < boards.length; i++)
+            blackhole.consume(ais[i].findBestMoveMinMax(boards[i]));
+    }
+}
@@ -0,0 +1,23 @@
+#!/bin/sh
+# Compiles the game together with the benchmarks and runs them, see BenchmarkRunner.
+# JMH is not part of the project, JMH_CLASSPATH must list the jars of jmh-core, jmh-generator-annprocess
+# and their dependencies jopt-simple and commons-math3, separated by colons.
+#
+# Usage: JMH_CLASSPATH=<jars> jmh/run.sh [benchmarks]
+set -e
+
+if [ -z "$JMH_CLASSPATH" ]; then
+    echo "Set JMH_CLASSPATH to the JMH jars, see the top of this script." >&2
+    exit 1
+fi
+
+JMH_DIR=$(cd "$(dirname "$0")" && pwd)
+PROJECT_DIR=$(dirname "$JMH_DIR")
+OUT=$(mktemp -d)
+trap 'rm -rf "$OUT"' EXIT
+
+# The tests need JUnit and are left out
+javac -cp "$JMH_CLASSPATH" -d "$OUT" \
+    $(find "$PROJECT_DIR" -maxdepth 1 -name '*.java' ! -name '*Test.java') "$JMH_DIR"/*.java
+
+java -cp "$OUT:$JMH_CLASSPATH" projects.connect4.BenchmarkRunner "$@"